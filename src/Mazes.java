@@ -1,11 +1,50 @@
 import java.awt.Color;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.Random;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.Timespan;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import tester.*;
 import javalib.impworld.*;
+import javalib.worldimages.ComputedPixelImage;
 import javalib.worldimages.LineImage;
 import javalib.worldimages.OutlineMode;
 import javalib.worldimages.Posn;
@@ -50,6 +89,10 @@ class Cell {
 
 // to represent an edge between the cells
 class Edge implements Comparable<Edge> {
+  // every wall looks the same, so the images are shared instead of made for every draw
+  static final WorldImage VERTICAL_WALL = new LineImage(new Posn(0, 20), Color.DARK_GRAY);
+  static final WorldImage HORIZONTAL_WALL = new LineImage(new Posn(20, 0), Color.DARK_GRAY);
+
   Cell first;
   Cell second;
   int weight;
@@ -82,50 +125,3867 @@ class Edge implements Comparable<Edge> {
     return this.first.sameRow(this.second);
   }
 
-  // to draw the edge
-  WorldImage draw() {
-    WorldImage image;
-    if (this.vertical()) {
-      image = new LineImage(new Posn(0,20), Color.DARK_GRAY);
-    } 
+  // to draw the edge
+  WorldImage draw() {
+    WorldImage image;
+    if (this.vertical()) {
+      image = VERTICAL_WALL;
+    } 
+    else {
+      image = HORIZONTAL_WALL;
+    }
+    return image;
+  }
+}
+
+// to represent the disjoint sets of cells used by Kruskal's algorithm
+// cells are identified by their index row * col + c
+// when counting, every find records how many links it followed before compressing
+class UnionFind {
+  int[] parents;
+  byte[] ranks;
+  boolean counting = false;
+  long finds = 0;
+  long findDepths = 0;
+  int maxFindDepth = 0;
+
+  UnionFind(int size) {
+    this.parents = new int[size];
+    this.ranks = new byte[size];
+    for (int i = 0; i < size; i++) {
+      this.parents[i] = i;
+    }
+  }
+
+  // to find the representative of the given cell, compressing the path on the way
+  // iterative so that long chains cannot overflow the stack
+  int find(int cell) {
+    int root = cell;
+    int depth = 0;
+    while (this.parents[root] != root) {
+      root = this.parents[root];
+      depth++;
+    }
+    if (this.counting) {
+      this.finds++;
+      this.findDepths += depth;
+      this.maxFindDepth = Math.max(this.maxFindDepth, depth);
+    }
+    while (this.parents[cell] != root) {
+      int next = this.parents[cell];
+      this.parents[cell] = root;
+      cell = next;
+    }
+    return root;
+  }
+
+  // EFFECT: to put every cell back in a set of its own and forget the counted finds
+  void reset() {
+    for (int i = 0; i < this.parents.length; i++) {
+      this.parents[i] = i;
+    }
+    Arrays.fill(this.ranks, (byte) 0);
+    this.finds = 0;
+    this.findDepths = 0;
+    this.maxFindDepth = 0;
+  }
+
+  // EFFECT: to connect the sets of the two given cells, attaching the lower ranked
+  // representative under the higher ranked one
+  // returns false if the cells were already in the same set
+  boolean union(int cell1, int cell2) {
+    int repre1 = this.find(cell1);
+    int repre2 = this.find(cell2);
+    if (repre1 == repre2) {
+      return false;
+    }
+    if (this.ranks[repre1] < this.ranks[repre2]) {
+      this.parents[repre1] = repre2;
+    }
+    else if (this.ranks[repre1] > this.ranks[repre2]) {
+      this.parents[repre2] = repre1;
+    }
+    else {
+      this.parents[repre2] = repre1;
+      this.ranks[repre1]++;
+    }
+    return true;
+  }
+}
+
+// to represent a maze compactly: every wall is one bit and every cell state is one bit
+// cells are identified by their index row * cols + col, the wall to the east of a cell
+// is the bit 2 * cell and the wall to the south of a cell is the bit 2 * cell + 1
+class MazeGrid {
+  static final int UP = 0;
+  static final int DOWN = 1;
+  static final int LEFT = 2;
+  static final int RIGHT = 3;
+
+  int rows;
+  int cols;
+  long[] walls;
+  long[] explored;
+  long[] solution;
+
+  // creates a grid over the given walls, which it shares, with no cell explored
+  MazeGrid(int rows, int cols, long[] walls) {
+    this.rows = rows;
+    this.cols = cols;
+    this.walls = walls;
+    this.explored = new long[(int) (((long) rows * cols + 63) >>> 6)];
+    this.solution = new long[(int) (((long) rows * cols + 63) >>> 6)];
+  }
+
+  // creates a grid where every cell is closed off by walls
+  MazeGrid(int rows, int cols) {
+    this.rows = rows;
+    this.cols = cols;
+    this.walls = new long[(int) ((2L * rows * cols + 63) >>> 6)];
+    this.explored = new long[(int) (((long) rows * cols + 63) >>> 6)];
+    this.solution = new long[(int) (((long) rows * cols + 63) >>> 6)];
+    Arrays.fill(this.walls, -1L);
+  }
+
+  // to return the number of cells in this grid
+  int cells() {
+    return this.rows * this.cols;
+  }
+
+  // to return the index of the cell at the given row and column
+  int index(int row, int col) {
+    return row * this.cols + col;
+  }
+
+  // to return the wall to the east of the given cell
+  int eastWall(int cell) {
+    return 2 * cell;
+  }
+
+  // to return the wall to the south of the given cell
+  int southWall(int cell) {
+    return 2 * cell + 1;
+  }
+
+  // to return the wall between the two given adjacent cells
+  int wallBetween(int cell1, int cell2) {
+    int low = Math.min(cell1, cell2);
+    if (Math.max(cell1, cell2) - low == this.cols) {
+      return this.southWall(low);
+    }
+    else {
+      return this.eastWall(low);
+    }
+  }
+
+  // to check if the given wall is standing
+  boolean hasWall(int wall) {
+    return (this.walls[wall >>> 6] & (1L << wall)) != 0;
+  }
+
+  // EFFECT: to knock down the given wall
+  void removeWall(int wall) {
+    this.walls[wall >>> 6] &= ~(1L << wall);
+  }
+
+  // EFFECT: to put the given wall back up
+  void addWall(int wall) {
+    this.walls[wall >>> 6] |= 1L << wall;
+  }
+
+  // to return the cell next to the given cell in the given direction, walls or not, or
+  // -1 at the border of the grid
+  int neighbor(int cell, int direction) {
+    int col = cell % this.cols;
+    if (direction == UP) {
+      return cell >= this.cols ? cell - this.cols : -1;
+    }
+    else if (direction == DOWN) {
+      return cell < this.cells() - this.cols ? cell + this.cols : -1;
+    }
+    else if (direction == LEFT) {
+      return col > 0 ? cell - 1 : -1;
+    }
+    else {
+      return col < this.cols - 1 ? cell + 1 : -1;
+    }
+  }
+
+  // to return the cell next to the given cell in the given direction
+  // if there is no wall in between, or -1 otherwise
+  int open(int cell, int direction) {
+    int col = cell % this.cols;
+    if (direction == UP) {
+      return cell >= this.cols && !this.hasWall(this.southWall(cell - this.cols))
+          ? cell - this.cols : -1;
+    }
+    else if (direction == DOWN) {
+      return cell < this.cells() - this.cols && !this.hasWall(this.southWall(cell))
+          ? cell + this.cols : -1;
+    }
+    else if (direction == LEFT) {
+      return col > 0 && !this.hasWall(this.eastWall(cell - 1)) ? cell - 1 : -1;
+    }
+    else {
+      return col < this.cols - 1 && !this.hasWall(this.eastWall(cell)) ? cell + 1 : -1;
+    }
+  }
+
+  // to check if there is a passage between the two given cells
+  boolean connected(int cell1, int cell2) {
+    int low = Math.min(cell1, cell2);
+    int diff = Math.max(cell1, cell2) - low;
+    if (diff == 1 && low % this.cols < this.cols - 1) {
+      return !this.hasWall(this.eastWall(low));
+    }
+    else if (diff == this.cols && low < this.cells() - this.cols) {
+      return !this.hasWall(this.southWall(low));
+    }
+    else {
+      return false;
+    }
+  }
+
+  // to check if the given cell has been explored
+  boolean isExplored(int cell) {
+    return (this.explored[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  // EFFECT: to mark the given cell as explored
+  void markExplored(int cell) {
+    this.explored[cell >>> 6] |= 1L << cell;
+  }
+
+  // to check if the given cell is on the solution
+  boolean isSolution(int cell) {
+    return (this.solution[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  // EFFECT: to mark the given cell as on the solution
+  void markSolution(int cell) {
+    this.solution[cell >>> 6] |= 1L << cell;
+  }
+
+  // EFFECT: to remove the explored and solution marks of the given cell
+  void unmark(int cell) {
+    this.explored[cell >>> 6] &= ~(1L << cell);
+    this.solution[cell >>> 6] &= ~(1L << cell);
+  }
+
+  // to count the passages of this grid, which is cells - 1 for a perfect maze
+  int passages() {
+    int passages = 0;
+    for (int cell = 0; cell < this.cells(); cell++) {
+      if (this.open(cell, RIGHT) != -1) {
+        passages++;
+      }
+      if (this.open(cell, DOWN) != -1) {
+        passages++;
+      }
+    }
+    return passages;
+  }
+
+  // EFFECT: to clear the explored and solution marks of every cell
+  void clearMarks() {
+    Arrays.fill(this.explored, 0L);
+    Arrays.fill(this.solution, 0L);
+  }
+
+  // EFFECT: to close off every cell by walls again and remove every mark
+  void reset() {
+    Arrays.fill(this.walls, -1L);
+    this.clearMarks();
+  }
+}
+
+// to generate a perfect maze, where there is exactly one path between any two cells,
+// straight into a MazeGrid, so the callers can pick any of the algorithms
+interface MazeGenerator {
+  // to generate a maze of the given size using the given random numbers
+  MazeGrid generate(int rows, int cols, Random rand);
+}
+
+// to represent the order in which Kruskal's algorithm visits the edges of a maze
+interface EdgeOrdering {
+  // to return the creation indices of the given number of edges in the order they
+  // should be visited, where edges are created as in MazesWorld.createEdges
+  int[] order(int edges, Random rand);
+
+  // EFFECT: to put the given edges in the order they should be visited
+  void sort(ArrayList<Edge> edges, Random rand);
+
+  // to check if this ordering reads the weights of the edges, so they must be drawn
+  boolean weighted();
+}
+
+// to order the edges by random weights from 0 to 99 with a stable counting sort,
+// which gives the same mazes as Collections.sort on the Edge weights
+// sort keeps its arrays for the next sort, so one ordering must not sort on two threads
+class BucketOrdering implements EdgeOrdering {
+  static final int BUCKETS = 100;
+
+  int[] starts = new int[BUCKETS + 1];
+  Edge[] sorted = new Edge[0];
+
+  // to return the creation indices of the edges sorted by a random weight each
+  public int[] order(int edges, Random rand) {
+    byte[] weights = new byte[edges];
+    int[] starts = new int[BUCKETS + 1];
+    for (int k = 0; k < edges; k++) {
+      weights[k] = (byte) rand.nextInt(BUCKETS);
+      starts[weights[k] + 1]++;
+    }
+    for (int b = 0; b < BUCKETS; b++) {
+      starts[b + 1] += starts[b];
+    }
+    int[] order = new int[edges];
+    for (int k = 0; k < edges; k++) {
+      order[starts[weights[k]]++] = k;
+    }
+    return order;
+  }
+
+  // EFFECT: to sort the given edges by their weights, keeping equal weights in order
+  public void sort(ArrayList<Edge> edges, Random rand) {
+    int[] starts = this.starts;
+    Arrays.fill(starts, 0);
+    for (int i = 0; i < edges.size(); i++) {
+      starts[edges.get(i).weight + 1]++;
+    }
+    for (int b = 0; b < BUCKETS; b++) {
+      starts[b + 1] += starts[b];
+    }
+    if (this.sorted.length < edges.size()) {
+      this.sorted = new Edge[edges.size()];
+    }
+    Edge[] sorted = this.sorted;
+    for (int i = 0; i < edges.size(); i++) {
+      Edge e = edges.get(i);
+      sorted[starts[e.weight]++] = e;
+    }
+    for (int i = 0; i < edges.size(); i++) {
+      edges.set(i, sorted[i]);
+      sorted[i] = null;
+    }
+  }
+
+  // to check if this ordering reads the weights of the edges: it sorts by them
+  public boolean weighted() {
+    return true;
+  }
+}
+
+// to order the edges with a Fisher-Yates shuffle, without any weights
+class ShuffleOrdering implements EdgeOrdering {
+
+  // to return the creation indices of the edges in a random order
+  public int[] order(int edges, Random rand) {
+    int[] order = new int[edges];
+    for (int k = 0; k < edges; k++) {
+      order[k] = k;
+    }
+    for (int k = edges - 1; k > 0; k--) {
+      int other = rand.nextInt(k + 1);
+      int temp = order[k];
+      order[k] = order[other];
+      order[other] = temp;
+    }
+    return order;
+  }
+
+  // EFFECT: to shuffle the given edges, ignoring their weights
+  public void sort(ArrayList<Edge> edges, Random rand) {
+    for (int k = edges.size() - 1; k > 0; k--) {
+      int other = rand.nextInt(k + 1);
+      edges.set(other, edges.set(k, edges.get(other)));
+    }
+  }
+
+  // to check if this ordering reads the weights of the edges: it never does
+  public boolean weighted() {
+    return false;
+  }
+}
+
+// to generate a maze with Kruskal's algorithm directly on a MazeGrid
+// with the default BucketOrdering the random weights are drawn in the same order as
+// MazesWorld.createEdges, so a seed gives the same maze as the MazesWorld pipeline
+// without building any Cell or Edge
+class KruskalGenerator implements MazeGenerator {
+  EdgeOrdering ordering;
+
+  KruskalGenerator() {
+    this(new BucketOrdering());
+  }
+
+  KruskalGenerator(EdgeOrdering ordering) {
+    this.ordering = ordering;
+  }
+
+  // to generate a maze of the given size using the given random numbers
+  public MazeGrid generate(int rows, int cols, Random rand) {
+    MazeGrid grid = new MazeGrid(rows, cols);
+    int vertical = (rows - 1) * cols;
+    int[] order = this.ordering.order(vertical + rows * (cols - 1), rand);
+
+    UnionFind representatives = new UnionFind(grid.cells());
+    int needed = grid.cells() - 1;
+    int accepted = 0;
+    for (int i = 0; i < order.length && accepted < needed; i++) {
+      int wall = this.wallOf(order[i], grid, vertical);
+      int first = wall >>> 1;
+      int second = (wall & 1) == 0 ? first + 1 : first + cols;
+      if (representatives.union(first, second)) {
+        grid.removeWall(wall);
+        accepted++;
+      }
+    }
+    return grid;
+  }
+
+  // to return the wall of the k-th edge created, where all the vertical edges
+  // come first and then all the horizontal edges, row by row
+  int wallOf(int k, MazeGrid grid, int vertical) {
+    if (k < vertical) {
+      return grid.southWall(k);
+    }
+    else {
+      int rest = k - vertical;
+      return grid.eastWall(grid.index(rest / (grid.cols - 1), rest % (grid.cols - 1)));
+    }
+  }
+}
+
+// to represent work done on a range of cells [lo, hi)
+interface RangeAction {
+  // EFFECT: to do the work for the cells from lo to hi
+  void apply(int lo, int hi);
+}
+
+// to split the work on a range of cells in halves on a ForkJoinPool
+// until the ranges are small enough to be done directly
+class RangeTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+  static final int GRAIN = 1 << 14;
+
+  int lo;
+  int hi;
+  int grain;
+  RangeAction action;
+
+  RangeTask(int lo, int hi, RangeAction action) {
+    this(lo, hi, GRAIN, action);
+  }
+
+  // for ranges of bigger pieces of work, which are split down to the given grain
+  RangeTask(int lo, int hi, int grain, RangeAction action) {
+    this.lo = lo;
+    this.hi = hi;
+    this.grain = grain;
+    this.action = action;
+  }
+
+  // EFFECT: to do the work on this range, forking the halves if it is too big
+  protected void compute() {
+    if (this.hi - this.lo <= this.grain) {
+      this.action.apply(this.lo, this.hi);
+    }
+    else {
+      int mid = (this.lo + this.hi) >>> 1;
+      invokeAll(new RangeTask(this.lo, mid, this.grain, this.action), 
+          new RangeTask(mid, this.hi, this.grain, this.action));
+    }
+  }
+}
+
+// to represent disjoint sets of cells that many threads can find and union at once
+// roots are always linked under the bigger root, so no cycle can appear, and the
+// paths are halved with compare-and-set on the way
+class ConcurrentUnionFind {
+  AtomicIntegerArray parents;
+
+  ConcurrentUnionFind(int size) {
+    this.parents = new AtomicIntegerArray(size);
+    for (int i = 0; i < size; i++) {
+      this.parents.set(i, i);
+    }
+  }
+
+  // to find the representative of the given cell
+  int find(int cell) {
+    int parent = this.parents.get(cell);
+    while (parent != cell) {
+      int grandparent = this.parents.get(parent);
+      if (grandparent != parent) {
+        this.parents.compareAndSet(cell, parent, grandparent);
+      }
+      cell = parent;
+      parent = grandparent;
+    }
+    return cell;
+  }
+
+  // EFFECT: to connect the sets of the two given cells
+  // returns false if the cells were already in the same set
+  boolean union(int cell1, int cell2) {
+    while (true) {
+      int repre1 = this.find(cell1);
+      int repre2 = this.find(cell2);
+      if (repre1 == repre2) {
+        return false;
+      }
+      int low = Math.min(repre1, repre2);
+      if (this.parents.compareAndSet(low, low, Math.max(repre1, repre2))) {
+        return true;
+      }
+    }
+  }
+}
+
+// to generate a maze with Boruvka's algorithm on a ForkJoinPool: in every round each
+// set of cells picks its lightest wall to another set, all at once, and those walls
+// are knocked down, which at least halves the number of sets
+// every wall gets its weight from a hash of the seed and the wall, and ties are broken
+// by the wall, so the spanning tree is unique: the same seed gives the same maze
+// whatever the number of threads
+class BoruvkaGenerator implements MazeGenerator {
+  static final long NONE = Long.MAX_VALUE;
+
+  // the pool every maze is generated on, kept from one maze to the next, or null to
+  // generate on the calling thread
+  ForkJoinPool pool;
+
+  // to generate on the common pool, on every core
+  BoruvkaGenerator() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  // to generate on a pool of the given number of threads, made once for this generator,
+  // or on the calling thread for one thread
+  BoruvkaGenerator(int threads) {
+    this(threads == 1 ? null : new ForkJoinPool(threads));
+  }
+
+  // to generate on the given pool of the caller, or on the calling thread for null
+  BoruvkaGenerator(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  // to generate a maze of the given size, with a seed drawn from the given random numbers
+  public MazeGrid generate(int rows, int cols, Random rand) {
+    return this.generate(rows, cols, rand.nextLong());
+  }
+
+  // to generate a maze of the given size from the given seed
+  MazeGrid generate(int rows, int cols, long seed) {
+    MazeGrid grid = new MazeGrid(rows, cols);
+    int cells = grid.cells();
+    ConcurrentUnionFind representatives = new ConcurrentUnionFind(cells);
+    int[] sets = new int[cells];
+    AtomicLongArray lightest = new AtomicLongArray(cells);
+    AtomicLongArray passages = new AtomicLongArray(grid.walls.length);
+    AtomicInteger picked = new AtomicInteger(1);
+    this.forCells(cells, (lo, hi) -> {
+      for (int cell = lo; cell < hi; cell++) {
+        lightest.set(cell, NONE);
+      }
+    });
+    while (picked.get() > 0) {
+      // every set picks its lightest wall to another set
+      this.forCells(cells, (lo, hi) -> {
+        for (int cell = lo; cell < hi; cell++) {
+          sets[cell] = representatives.find(cell);
+        }
+      });
+      this.forCells(cells, (lo, hi) -> {
+        for (int cell = lo; cell < hi; cell++) {
+          this.offerWalls(grid, seed, cell, sets, lightest);
+        }
+      });
+      // and the picked walls are knocked down
+      picked.set(0);
+      this.forCells(cells, (lo, hi) -> {
+        int count = 0;
+        for (int cell = lo; cell < hi; cell++) {
+          long key = lightest.get(cell);
+          if (key != NONE) {
+            int wall = (int) (key & Integer.MAX_VALUE);
+            int first = wall >>> 1;
+            representatives.union(first, (wall & 1) == 0 ? first + 1 : first + cols);
+            this.setBit(passages, wall);
+            lightest.set(cell, NONE);
+            count++;
+          }
+        }
+        picked.addAndGet(count);
+      });
+    }
+    for (int i = 0; i < grid.walls.length; i++) {
+      grid.walls[i] = ~passages.get(i);
+    }
+    return grid;
+  }
+
+  // EFFECT: to do the given work for the given number of cells, split up on the pool of
+  // this generator, or all at once on the calling thread if it has none
+  void forCells(int cells, RangeAction action) {
+    if (this.pool == null) {
+      action.apply(0, cells);
+    }
+    else {
+      this.pool.invoke(new RangeTask(0, cells, action));
+    }
+  }
+
+  // EFFECT: to offer every wall of the given cell that leads to another set as the
+  // lightest wall of the cell's set, where sets holds the set of every cell
+  void offerWalls(MazeGrid grid, long seed, int cell, int[] sets, AtomicLongArray lightest) {
+    int col = cell % grid.cols;
+    int repre = sets[cell];
+    if (col < grid.cols - 1) {
+      this.offer(seed, grid.eastWall(cell), repre, sets[cell + 1], lightest);
+    }
+    if (col > 0) {
+      this.offer(seed, grid.eastWall(cell - 1), repre, sets[cell - 1], lightest);
+    }
+    if (cell < grid.cells() - grid.cols) {
+      this.offer(seed, grid.southWall(cell), repre, sets[cell + grid.cols], lightest);
+    }
+    if (cell >= grid.cols) {
+      this.offer(seed, grid.southWall(cell - grid.cols), repre, sets[cell - grid.cols], 
+          lightest);
+    }
+  }
+
+  // EFFECT: to keep the given wall as the lightest of the given set if it is lighter
+  // and leads to another set
+  void offer(long seed, int wall, int repre, int other, AtomicLongArray lightest) {
+    if (repre != other) {
+      long key = this.key(seed, wall);
+      long current = lightest.get(repre);
+      while (key < current && !lightest.compareAndSet(repre, current, key)) {
+        current = lightest.get(repre);
+      }
+    }
+  }
+
+  // to return the weight of the given wall in the high bits and the wall itself in the
+  // low 31 bits, from a splitmix64 hash of the seed and the wall
+  long key(long seed, int wall) {
+    long z = seed + (wall + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    z = z ^ (z >>> 31);
+    return ((z >>> 33) << 31) | wall;
+  }
+
+  // EFFECT: to set the given bit of the given bitset, even if other threads set
+  // bits of the same word at the same time
+  void setBit(AtomicLongArray bits, int bit) {
+    long word = bits.get(bit >>> 6);
+    while (!bits.compareAndSet(bit >>> 6, word, word | (1L << bit))) {
+      word = bits.get(bit >>> 6);
+    }
+  }
+}
+
+// to represent one row of a maze, with the same layout of walls as a MazeGrid:
+// the wall to the east of the cell in column c is the bit 2 * c and the wall to the
+// south of it is the bit 2 * c + 1
+class MazeRow {
+  long index;
+  int cols;
+  long[] walls;
+
+  MazeRow(long index, int cols) {
+    this.index = index;
+    this.cols = cols;
+    this.walls = new long[(2 * cols + 63) >>> 6];
+    Arrays.fill(this.walls, -1L);
+  }
+
+  // to check if the cell in the given column has a wall to the east
+  boolean hasEastWall(int col) {
+    return (this.walls[(2 * col) >>> 6] & (1L << (2 * col))) != 0;
+  }
+
+  // to check if the cell in the given column has a wall to the south
+  boolean hasSouthWall(int col) {
+    return (this.walls[(2 * col + 1) >>> 6] & (1L << (2 * col + 1))) != 0;
+  }
+
+  // EFFECT: to knock down the wall to the east of the cell in the given column
+  void removeEastWall(int col) {
+    this.walls[(2 * col) >>> 6] &= ~(1L << (2 * col));
+  }
+
+  // EFFECT: to knock down the wall to the south of the cell in the given column
+  void removeSouthWall(int col) {
+    this.walls[(2 * col + 1) >>> 6] &= ~(1L << (2 * col + 1));
+  }
+
+  // to draw this row as two lines of text, the cells and then the walls below them,
+  // to be printed under a top line of "+--" for every column and a final "+"
+  String toText() {
+    StringBuilder cells = new StringBuilder("|");
+    StringBuilder below = new StringBuilder("+");
+    for (int col = 0; col < this.cols; col++) {
+      cells.append(this.hasEastWall(col) ? "  |" : "   ");
+      below.append(this.hasSouthWall(col) ? "--+" : "  +");
+    }
+    return cells.append("\n").append(below).append("\n").toString();
+  }
+}
+
+// to generate a maze one row at a time with Eller's algorithm, keeping only the sets
+// of the cells of the current row, so memory does not depend on the number of rows
+// every row joins some neighbours in different sets and sends every set down at least
+// once, and the last row joins all the sets left, which gives a perfect maze
+class EllerRows implements Iterator<MazeRow> {
+  long rows;
+  int cols;
+  Random rand;
+  long index = 0;
+  int[] labels;
+  UnionFind sets;
+  int[] firstDown;
+  int[] lastMember;
+  long bits = 0;
+  int bitsLeft = 0;
+
+  // rows can be Long.MAX_VALUE for a maze that never ends
+  EllerRows(long rows, int cols, Random rand) {
+    this.rows = rows;
+    this.cols = cols;
+    this.rand = rand;
+    this.labels = new int[cols];
+    this.sets = new UnionFind(cols);
+    this.firstDown = new int[cols];
+    this.lastMember = new int[cols];
+    for (int col = 0; col < cols; col++) {
+      this.labels[col] = col;
+    }
+  }
+
+  // to check if there are rows left
+  public boolean hasNext() {
+    return this.index < this.rows;
+  }
+
+  // EFFECT: to generate the next row of the maze and carry its sets to the row below
+  public MazeRow next() {
+    if (!this.hasNext()) {
+      throw new NoSuchElementException("The maze has no more rows");
+    }
+    MazeRow row = new MazeRow(this.index, this.cols);
+    boolean last = this.index == this.rows - 1;
+    for (int col = 0; col < this.cols; col++) {
+      this.sets.parents[col] = this.labels[col];
+      this.sets.ranks[col] = 0;
+    }
+
+    // join neighbours in different sets, all of them on the last row
+    for (int col = 0; col < this.cols - 1; col++) {
+      if (this.sets.find(col) != this.sets.find(col + 1) && (last || this.coinFlip())) {
+        this.sets.union(col, col + 1);
+        row.removeEastWall(col);
+      }
+    }
+
+    if (!last) {
+      this.carryDown(row);
+    }
+    this.index++;
+    return row;
+  }
+
+  // EFFECT: to return a random boolean, taking the bits of one random long at a time
+  boolean coinFlip() {
+    if (this.bitsLeft == 0) {
+      this.bits = this.rand.nextLong();
+      this.bitsLeft = 64;
+    }
+    boolean heads = (this.bits & 1) != 0;
+    this.bits >>>= 1;
+    this.bitsLeft--;
+    return heads;
+  }
+
+  // EFFECT: to knock down some walls to the south of the given row, at least one for
+  // every set, and to label the sets of the row below with a column of the set that
+  // went down, or with their own column for the cells that start a new set
+  void carryDown(MazeRow row) {
+    Arrays.fill(this.firstDown, -1);
+    for (int col = 0; col < this.cols; col++) {
+      int repre = this.sets.find(col);
+      this.lastMember[repre] = col;
+      if (this.coinFlip()) {
+        row.removeSouthWall(col);
+        if (this.firstDown[repre] == -1) {
+          this.firstDown[repre] = col;
+        }
+      }
+    }
+    for (int col = 0; col < this.cols; col++) {
+      int repre = this.sets.find(col);
+      if (this.firstDown[repre] == -1 && this.lastMember[repre] == col) {
+        row.removeSouthWall(col);
+        this.firstDown[repre] = col;
+      }
+    }
+    for (int col = 0; col < this.cols; col++) {
+      if (row.hasSouthWall(col)) {
+        this.labels[col] = col;
+      }
+      else {
+        this.labels[col] = this.firstDown[this.sets.find(col)];
+      }
+    }
+  }
+}
+
+// to generate whole mazes with Eller's algorithm into a MazeGrid, going through the rows
+// of a new EllerRows of the right size for every maze
+class EllerGenerator implements MazeGenerator {
+
+  // to generate a whole maze of the given size into a MazeGrid
+  public MazeGrid generate(int rows, int cols, Random rand) {
+    MazeGrid grid = new MazeGrid(rows, cols);
+    EllerRows eller = new EllerRows(rows, cols, rand);
+    while (eller.hasNext()) {
+      MazeRow row = eller.next();
+      for (int col = 0; col < cols; col++) {
+        int cell = grid.index((int) row.index, col);
+        if (!row.hasEastWall(col)) {
+          grid.removeWall(grid.eastWall(cell));
+        }
+        if (!row.hasSouthWall(col)) {
+          grid.removeWall(grid.southWall(cell));
+        }
+      }
+    }
+    return grid;
+  }
+}
+
+// to generate a maze with the recursive backtracker: walk to a random neighbour that is
+// not in the maze yet for as long as there is one, and back up when there is none
+// the walk is kept on an explicit stack, so its long corridors cannot overflow the
+// call stack
+class BacktrackerGenerator implements MazeGenerator {
+
+  // to generate a maze of the given size using the given random numbers
+  public MazeGrid generate(int rows, int cols, Random rand) {
+    MazeGrid grid = new MazeGrid(rows, cols);
+    int cells = grid.cells();
+    if (cells == 0) {
+      return grid;
+    }
+    BitSet visited = new BitSet(cells);
+    int[] stack = new int[cells];
+    int[] choices = new int[4];
+    int size = 0;
+    stack[size++] = rand.nextInt(cells);
+    visited.set(stack[0]);
+    while (size > 0) {
+      int cell = stack[size - 1];
+      int count = 0;
+      for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+        int neighbor = grid.neighbor(cell, direction);
+        if (neighbor != -1 && !visited.get(neighbor)) {
+          choices[count++] = neighbor;
+        }
+      }
+      if (count == 0) {
+        size--;
+      }
+      else {
+        int next = choices[rand.nextInt(count)];
+        grid.removeWall(grid.wallBetween(cell, next));
+        visited.set(next);
+        stack[size++] = next;
+      }
+    }
+    return grid;
+  }
+}
+
+// to generate a maze with Wilson's algorithm: from every cell not in the maze yet, walk
+// randomly until the walk runs into the maze, and add the walk without its loops
+// only the last way out of every cell is kept, which erases the loops as it walks
+// every perfect maze of the given size is equally likely
+class WilsonGenerator implements MazeGenerator {
+
+  // to generate a maze of the given size using the given random numbers
+  public MazeGrid generate(int rows, int cols, Random rand) {
+    MazeGrid grid = new MazeGrid(rows, cols);
+    int cells = grid.cells();
+    if (cells == 0) {
+      return grid;
+    }
+    BitSet inMaze = new BitSet(cells);
+    int[] next = new int[cells];
+    inMaze.set(rand.nextInt(cells));
+    for (int start = 0; start < cells; start++) {
+      int cell = start;
+      while (!inMaze.get(cell)) {
+        int neighbor = grid.neighbor(cell, rand.nextInt(4));
+        if (neighbor != -1) {
+          next[cell] = neighbor;
+          cell = neighbor;
+        }
+      }
+      cell = start;
+      while (!inMaze.get(cell)) {
+        inMaze.set(cell);
+        grid.removeWall(grid.wallBetween(cell, next[cell]));
+        cell = next[cell];
+      }
+    }
+    return grid;
+  }
+}
+
+// to generate a maze with randomized Prim's algorithm: keep the frontier of the cells
+// next to the maze, and add a random one of them through a random wall to the maze
+// the frontier is an array where the chosen cell is swapped with the last one
+class PrimGenerator implements MazeGenerator {
+
+  // to generate a maze of the given size using the given random numbers
+  public MazeGrid generate(int rows, int cols, Random rand) {
+    MazeGrid grid = new MazeGrid(rows, cols);
+    int cells = grid.cells();
+    if (cells == 0) {
+      return grid;
+    }
+    BitSet inMaze = new BitSet(cells);
+    BitSet seen = new BitSet(cells);
+    int[] frontier = new int[cells];
+    int[] choices = new int[4];
+    int first = rand.nextInt(cells);
+    inMaze.set(first);
+    seen.set(first);
+    int size = this.addFrontier(grid, first, seen, frontier, 0);
+    while (size > 0) {
+      int pick = rand.nextInt(size);
+      int cell = frontier[pick];
+      size--;
+      frontier[pick] = frontier[size];
+      int count = 0;
+      for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+        int neighbor = grid.neighbor(cell, direction);
+        if (neighbor != -1 && inMaze.get(neighbor)) {
+          choices[count++] = neighbor;
+        }
+      }
+      grid.removeWall(grid.wallBetween(cell, choices[rand.nextInt(count)]));
+      inMaze.set(cell);
+      size = this.addFrontier(grid, cell, seen, frontier, size);
+    }
+    return grid;
+  }
+
+  // EFFECT: to add the neighbours of the given cell that were never seen to the given
+  // frontier of the given size
+  // returns the new size of the frontier
+  int addFrontier(MazeGrid grid, int cell, BitSet seen, int[] frontier, int size) {
+    for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+      int neighbor = grid.neighbor(cell, direction);
+      if (neighbor != -1 && !seen.get(neighbor)) {
+        seen.set(neighbor);
+        frontier[size++] = neighbor;
+      }
+    }
+    return size;
+  }
+}
+
+// to represent a maze saved in a binary file: a header of 48 bytes (the magic number
+// "MAZE", the version, rows, cols, the seed and the name of the generator in 16 bytes
+// of ASCII) followed by the walls of the MazeGrid as little-endian longs
+// the file is written and read through a memory mapping, so loading a maze is one bulk
+// copy of its walls and never builds any Cell or Edge
+// a file holds at most 2^30 cells, so the wall 2 * cell + 1 of every cell fits in an int
+class MazeFile {
+  // the bytes "MAZE" read as a little-endian int
+  static final int MAGIC = 0x455A414D;
+  static final long MAX_CELLS = 1L << 30;
+  static final int VERSION = 1;
+  static final int HEADER = 48;
+  static final int NAME = 16;
+  static final int CHUNK = 1 << 24;
+
+  Path path;
+  int rows;
+  int cols;
+  long seed;
+  String generator;
+  // the most longs of walls mapped at once
+  int chunk = CHUNK;
+
+  MazeFile(Path path) {
+    this.path = path;
+  }
+
+  // EFFECT: to write the given grid to this file, with the seed and the name of the
+  // generator that made it
+  void save(MazeGrid grid, long seed, String generator) throws IOException {
+    byte[] name = generator.getBytes(StandardCharsets.US_ASCII);
+    if (name.length > NAME) {
+      throw new IllegalArgumentException("Generator name longer than " + NAME + " bytes: "
+          + generator);
+    }
+    this.rows = grid.rows;
+    this.cols = grid.cols;
+    this.seed = seed;
+    this.generator = generator;
+    try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.CREATE, 
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, 
+        StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(grid.rows).putInt(grid.cols).putLong(seed);
+      buffer.put(Arrays.copyOf(name, NAME));
+      buffer.force();
+      this.copyWalls(channel, grid.walls, true);
+    }
+  }
+
+  // to read the grid in this file, remembering its header
+  MazeGrid load() throws IOException {
+    try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER) {
+        throw new IOException("Not a maze file: " + this.path);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Not a maze file: " + this.path);
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported maze file version " + version + ": " + this.path);
+      }
+      int rows = buffer.getInt();
+      int cols = buffer.getInt();
+      if (rows < 0 || cols < 0 || (long) rows * cols > MAX_CELLS) {
+        throw new IOException("Bad maze size " + rows + "x" + cols + ": " + this.path);
+      }
+      if (channel.size() < HEADER + 8 * ((2L * rows * cols + 63) >>> 6)) {
+        throw new IOException("Truncated maze file: " + this.path);
+      }
+      this.rows = rows;
+      this.cols = cols;
+      this.seed = buffer.getLong();
+      byte[] name = new byte[NAME];
+      buffer.get(name);
+      int length = 0;
+      while (length < NAME && name[length] != 0) {
+        length++;
+      }
+      this.generator = new String(name, 0, length, StandardCharsets.US_ASCII);
+
+      MazeGrid grid = new MazeGrid(rows, cols);
+      this.copyWalls(channel, grid.walls, false);
+      return grid;
+    }
+  }
+
+  // EFFECT: to write the given walls after the header of the file behind the given
+  // channel, or to read them from it, mapping at most chunk longs at a time since one
+  // mapping cannot pass Integer.MAX_VALUE bytes
+  void copyWalls(FileChannel channel, long[] walls, boolean write) throws IOException {
+    FileChannel.MapMode mode = write ? FileChannel.MapMode.READ_WRITE 
+        : FileChannel.MapMode.READ_ONLY;
+    for (int from = 0; from < walls.length; from += this.chunk) {
+      int count = Math.min(this.chunk, walls.length - from);
+      MappedByteBuffer buffer = channel.map(mode, HEADER + 8L * from, 8L * count);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      if (write) {
+        buffer.asLongBuffer().put(walls, from, count);
+        buffer.force();
+      }
+      else {
+        buffer.asLongBuffer().get(walls, from, count);
+      }
+    }
+  }
+}
+
+// to represent a double-ended queue of ints in a growable ring buffer
+// highWater is the most items it ever held at once
+class IntDeque {
+  int[] items;
+  int head = 0;
+  int size = 0;
+  int highWater = 0;
+
+  IntDeque(int capacity) {
+    this.items = new int[Math.max(capacity, 1)];
+  }
+
+  // to check if this deque is empty
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // EFFECT: to add the given item at the front of this deque
+  void addFirst(int item) {
+    this.ensureCapacity();
+    this.head = this.head == 0 ? this.items.length - 1 : this.head - 1;
+    this.items[this.head] = item;
+    this.size++;
+    this.highWater = Math.max(this.highWater, this.size);
+  }
+
+  // EFFECT: to add the given item at the back of this deque
+  void addLast(int item) {
+    this.ensureCapacity();
+    int tail = this.head + this.size;
+    this.items[tail < this.items.length ? tail : tail - this.items.length] = item;
+    this.size++;
+    this.highWater = Math.max(this.highWater, this.size);
+  }
+
+  // EFFECT: to remove and return the item at the front of this deque
+  int removeFirst() {
+    if (this.size == 0) {
+      throw new RuntimeException("Cannot remove from an empty deque");
+    }
+    int item = this.items[this.head];
+    this.head = this.head == this.items.length - 1 ? 0 : this.head + 1;
+    this.size--;
+    return item;
+  }
+
+  // EFFECT: to remove every item of this deque
+  void clear() {
+    this.head = 0;
+    this.size = 0;
+  }
+
+  // EFFECT: to double the ring buffer when it is full, unrolling it from the head
+  void ensureCapacity() {
+    if (this.size == this.items.length) {
+      int[] bigger = new int[this.items.length * 2];
+      for (int i = 0; i < this.size; i++) {
+        bigger[i] = this.items[(this.head + i) % this.items.length];
+      }
+      this.items = bigger;
+      this.head = 0;
+    }
+  }
+}
+
+// to represent a binary min-heap of ints with long priorities, so a priority may pack
+// two ints compared one after the other (see PathRepair.key)
+// highWater is the most items it ever held at once
+class IntMinHeap {
+  int[] items;
+  long[] priorities;
+  int size = 0;
+  int highWater = 0;
+
+  IntMinHeap(int capacity) {
+    this.items = new int[Math.max(capacity, 1)];
+    this.priorities = new long[Math.max(capacity, 1)];
+  }
+
+  // to check if this heap is empty
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // EFFECT: to add the given item with the given priority to this heap
+  void add(int item, long priority) {
+    if (this.size == this.items.length) {
+      this.items = Arrays.copyOf(this.items, this.size * 2);
+      this.priorities = Arrays.copyOf(this.priorities, this.size * 2);
+    }
+    int idx = this.size;
+    this.size++;
+    this.highWater = Math.max(this.highWater, this.size);
+    while (idx > 0 && this.priorities[(idx - 1) / 2] > priority) {
+      this.items[idx] = this.items[(idx - 1) / 2];
+      this.priorities[idx] = this.priorities[(idx - 1) / 2];
+      idx = (idx - 1) / 2;
+    }
+    this.items[idx] = item;
+    this.priorities[idx] = priority;
+  }
+
+  // EFFECT: to remove and return the item with the lowest priority in this heap
+  int removeMin() {
+    if (this.size == 0) {
+      throw new RuntimeException("Cannot remove from an empty heap");
+    }
+    int min = this.items[0];
+    this.size--;
+    int item = this.items[this.size];
+    long priority = this.priorities[this.size];
+    int idx = 0;
+    while (2 * idx + 1 < this.size) {
+      int child = 2 * idx + 1;
+      if (child + 1 < this.size && this.priorities[child + 1] < this.priorities[child]) {
+        child++;
+      }
+      if (this.priorities[child] >= priority) {
+        break;
+      }
+      this.items[idx] = this.items[child];
+      this.priorities[idx] = this.priorities[child];
+      idx = child;
+    }
+    this.items[idx] = item;
+    this.priorities[idx] = priority;
+    return min;
+  }
+}
+
+// to represent the result of a search on a MazeGrid
+// visited is the order in which the cells were expanded, parents links every reached
+// cell to the cell it was reached from (-1 if never reached) and path goes from the
+// goal back to the start, or is empty if the goal cannot be reached
+// frontierPeak is the most cells the worklist of the search held at once
+// levelStarts is where every level of visited starts, for the searches that go a whole
+// level at a time, or null
+class SearchResult {
+  int[] visited;
+  int[] parents;
+  int[] path;
+  long elapsedNanos = 0;
+  int frontierPeak = 0;
+  int[] levelStarts;
+
+  SearchResult(int[] visited, int[] parents, int[] path) {
+    this.visited = visited;
+    this.parents = parents;
+    this.path = path;
+  }
+
+  // to return the number of cells expanded by the search
+  int expanded() {
+    return this.visited.length;
+  }
+
+  // to return the number of cells on the path found by the search
+  int pathLength() {
+    return this.path.length;
+  }
+
+  // to describe the cost of the search in one line
+  String summary() {
+    return "expanded=" + this.expanded() + " path=" + this.pathLength() 
+        + " nanos=" + this.elapsedNanos;
+  }
+}
+
+// to search a MazeGrid from one cell to another, taking constant time per step
+// the neighbours are visited up, down, left, right like the edges of a Cell
+class GridSearch {
+  static final int LEVEL_GRAIN = 1 << 12;
+
+  MazeGrid grid;
+  // the cells of a level that one task of searchParallel expands
+  int levelGrain = LEVEL_GRAIN;
+
+  GridSearch(MazeGrid grid) {
+    this.grid = grid;
+  }
+
+  // to solve the maze from the given cell to the given cell with the search of the
+  // given key: "d" for depth-first, "a" for A*, "m" for bidirectional breadth-first
+  // (meeting in the middle), "p" for breadth-first a level at a time on all the cores
+  // and breadth-first otherwise, timing the search
+  SearchResult solve(String key, int from, int to) {
+    long start = System.nanoTime();
+    SearchResult result;
+    if (key.equals("d")) {
+      result = this.search(from, to, false);
+    }
+    else if (key.equals("a")) {
+      result = this.searchAStar(from, to);
+    }
+    else if (key.equals("m")) {
+      result = this.searchBidirectional(from, to);
+    }
+    else if (key.equals("p")) {
+      result = this.searchParallel(from, to, ForkJoinPool.commonPool());
+    }
+    else {
+      result = this.search(from, to, true);
+    }
+    result.elapsedNanos = System.nanoTime() - start;
+    MazePhaseEvent.emit("search", key, this.grid.cells(), result.elapsedNanos, 
+        result.expanded(), 0, null, result.frontierPeak);
+    return result;
+  }
+
+  // to do the breadth-first search from the given cell to the given cell
+  SearchResult breadthFirst(int from, int to) {
+    return this.solve("b", from, to);
+  }
+
+  // to do the depth-first search from the given cell to the given cell
+  SearchResult depthFirst(int from, int to) {
+    return this.solve("d", from, to);
+  }
+
+  // to do the A* search from the given cell to the given cell
+  SearchResult aStar(int from, int to) {
+    return this.solve("a", from, to);
+  }
+
+  // to do the bidirectional breadth-first search from the given cell to the given cell
+  SearchResult bidirectional(int from, int to) {
+    return this.solve("m", from, to);
+  }
+
+  // to do the level-synchronous parallel breadth-first search from the given cell to
+  // the given cell
+  SearchResult parallelBreadthFirst(int from, int to) {
+    return this.solve("p", from, to);
+  }
+
+  // to do the bfs search or the dfs search from the given cell to the given cell
+  SearchResult search(int from, int to, boolean breadthFirst) {
+    int cells = this.grid.cells();
+    int[] parents = new int[cells];
+    Arrays.fill(parents, -1);
+    int[] visited = new int[cells];
+    int count = 0;
+    BitSet alreadySeen = new BitSet(cells);
+    IntDeque worklist = new IntDeque(breadthFirst ? cells : 64);
+    worklist.addLast(from);
+    parents[from] = from;
+
+    // As long as the worklist isn't empty...
+    while (!worklist.isEmpty()) {
+      int next = worklist.removeFirst();
+      if (next == to) {
+        SearchResult result = new SearchResult(Arrays.copyOf(visited, count), parents, 
+            this.reconstruct(parents, from, to));
+        result.frontierPeak = worklist.highWater;
+        return result;
+      }
+      else if (!alreadySeen.get(next)) {
+        alreadySeen.set(next);
+        for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+          int neighbor = this.grid.open(next, direction);
+          if (neighbor == -1 || alreadySeen.get(neighbor)) {
+            // do nothing: there is a wall or we've already seen this one
+          }
+          else if (breadthFirst) {
+            // a cell is only queued once, the first time is the shortest
+            if (parents[neighbor] == -1) {
+              parents[neighbor] = next;
+              worklist.addLast(neighbor);
+            }
+          }
+          else {
+            parents[neighbor] = next;
+            worklist.addFirst(neighbor);
+          }
+        }
+        visited[count] = next;
+        count++;
+      }
+    }
+    SearchResult result = new SearchResult(Arrays.copyOf(visited, count), parents, new int[0]);
+    result.frontierPeak = worklist.highWater;
+    return result;
+  }
+
+  // to do the breadth-first search from the given cell to the given cell a whole level
+  // at a time, expanding the wide levels on the given pool
+  // every cell next to the level that was never seen is claimed atomically by the first
+  // cell of the level next to it, and the claimed cells are then written to the next
+  // level in the order the serial search would queue them, so the visited cells and the
+  // path are the same as breadthFirst's; where each level starts in visited is recorded
+  SearchResult searchParallel(int from, int to, ForkJoinPool pool) {
+    int cells = this.grid.cells();
+    int[] parents = new int[cells];
+    Arrays.fill(parents, -1);
+    AtomicLongArray seen = new AtomicLongArray((cells + 63) >>> 6);
+    AtomicIntegerArray owners = new AtomicIntegerArray(cells);
+    int[] visited = new int[cells];
+    int[] levels = new int[16];
+    int depth = 0;
+    int[] frontier = new int[cells];
+    int[] next = new int[cells];
+    int count = 0;
+    int size = 1;
+    int peak = 1;
+    frontier[0] = from;
+    parents[from] = from;
+    this.see(seen, from);
+
+    while (size > 0) {
+      if (depth == levels.length) {
+        levels = Arrays.copyOf(levels, depth * 2);
+      }
+      levels[depth] = count;
+      depth++;
+      if (to != -1 && this.isSeen(seen, to)) {
+        int goal = 0;
+        while (frontier[goal] != to) {
+          goal++;
+        }
+        System.arraycopy(frontier, 0, visited, count, goal);
+        SearchResult result = new SearchResult(Arrays.copyOf(visited, count + goal), 
+            parents, this.reconstruct(parents, from, to));
+        result.levelStarts = Arrays.copyOf(levels, depth);
+        result.frontierPeak = peak;
+        return result;
+      }
+      System.arraycopy(frontier, 0, visited, count, size);
+      count += size;
+      int nextSize = this.expandLevel(frontier, size, count - size, next, parents, seen, 
+          owners, pool);
+      int[] expanded = frontier;
+      frontier = next;
+      next = expanded;
+      size = nextSize;
+      peak = Math.max(peak, size);
+    }
+    SearchResult result = new SearchResult(Arrays.copyOf(visited, count), parents, new int[0]);
+    result.levelStarts = Arrays.copyOf(levels, depth);
+    result.frontierPeak = peak;
+    return result;
+  }
+
+  // EFFECT: to put the cells next to the given level of the given size that were never
+  // seen into the next level, each once, for the first cell of the level next to it,
+  // setting their parents and marking them seen
+  // the cells of the level are numbered from the given base, so the claims of every
+  // level are different from the claims of the levels before
+  // owners keeps one int per cell, not one bit like seen: a bit would only say that some
+  // cell claimed the neighbor, and whichever thread set it first would win, but the
+  // parent and the place in the next level must be those of the serial search on any
+  // number of threads, so the claim records which cell of the level made it
+  // returns the size of the next level
+  int expandLevel(int[] level, int size, int base, int[] next, int[] parents, 
+      AtomicLongArray seen, AtomicIntegerArray owners, ForkJoinPool pool) {
+    int chunks = (size + this.levelGrain - 1) / this.levelGrain;
+    int[] offsets = new int[chunks + 1];
+    // a cell of the level claims with the key MAX_VALUE - (base + i) and the largest key
+    // is kept, so the claim goes to the cell with the lowest base + i: the one the serial
+    // search dequeues first; the claims of later levels have smaller keys, so they never
+    // beat a claim left in owners by an earlier level
+    RangeAction claim = (lo, hi) -> {
+      for (int i = lo * this.levelGrain; i < Math.min(size, hi * this.levelGrain); i++) {
+        int key = Integer.MAX_VALUE - (base + i);
+        for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+          int neighbor = this.grid.open(level[i], direction);
+          if (neighbor != -1 && !this.isSeen(seen, neighbor)) {
+            int owner = owners.get(neighbor);
+            while (owner < key && !owners.compareAndSet(neighbor, owner, key)) {
+              owner = owners.get(neighbor);
+            }
+          }
+        }
+      }
+    };
+    RangeAction count = (lo, hi) -> {
+      for (int chunk = lo; chunk < hi; chunk++) {
+        offsets[chunk + 1] = this.placeClaims(level, size, base, chunk, null, 0, parents, 
+            seen, owners);
+      }
+    };
+    RangeAction place = (lo, hi) -> {
+      for (int chunk = lo; chunk < hi; chunk++) {
+        this.placeClaims(level, size, base, chunk, next, offsets[chunk], parents, seen, 
+            owners);
+      }
+    };
+    this.onChunks(chunks, claim, pool);
+    this.onChunks(chunks, count, pool);
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      offsets[chunk + 1] += offsets[chunk];
+    }
+    this.onChunks(chunks, place, pool);
+    return offsets[chunks];
+  }
+
+  // EFFECT: to write the cells claimed by the given chunk of the given level into next
+  // from the given offset, setting their parents and marking them seen, or only to count
+  // them if next is null
+  // returns the number of cells claimed by the chunk
+  int placeClaims(int[] level, int size, int base, int chunk, int[] next, int offset, 
+      int[] parents, AtomicLongArray seen, AtomicIntegerArray owners) {
+    int placed = 0;
+    for (int i = chunk * this.levelGrain; i < Math.min(size, (chunk + 1) * this.levelGrain); i++) {
+      int key = Integer.MAX_VALUE - (base + i);
+      for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+        int neighbor = this.grid.open(level[i], direction);
+        if (neighbor != -1 && owners.get(neighbor) == key) {
+          if (next != null) {
+            next[offset + placed] = neighbor;
+            parents[neighbor] = level[i];
+            this.see(seen, neighbor);
+          }
+          placed++;
+        }
+      }
+    }
+    return placed;
+  }
+
+  // EFFECT: to do the given action on the given number of chunks, on the given pool if
+  // there is more than one
+  void onChunks(int chunks, RangeAction action, ForkJoinPool pool) {
+    if (chunks == 1) {
+      action.apply(0, 1);
+    }
+    else {
+      pool.invoke(new RangeTask(0, chunks, 1, action));
+    }
+  }
+
+  // to check if the given cell is set in the given bits
+  boolean isSeen(AtomicLongArray seen, int cell) {
+    return (seen.get(cell >>> 6) & (1L << cell)) != 0;
+  }
+
+  // EFFECT: to set the given cell in the given bits, even while other threads set other
+  // cells of the same word
+  void see(AtomicLongArray seen, int cell) {
+    long word = seen.get(cell >>> 6);
+    while (!seen.compareAndSet(cell >>> 6, word, word | (1L << cell))) {
+      word = seen.get(cell >>> 6);
+    }
+  }
+
+  // to estimate the number of steps between the two given cells
+  int manhattan(int cell1, int cell2) {
+    return Math.abs(cell1 / this.grid.cols - cell2 / this.grid.cols) 
+        + Math.abs(cell1 % this.grid.cols - cell2 % this.grid.cols);
+  }
+
+  // to do the A* search from the given cell to the given cell, always expanding the
+  // cell with the lowest steps so far plus manhattan distance to the goal
+  SearchResult searchAStar(int from, int to) {
+    int cells = this.grid.cells();
+    int[] parents = new int[cells];
+    Arrays.fill(parents, -1);
+    int[] steps = new int[cells];
+    Arrays.fill(steps, Integer.MAX_VALUE);
+    int[] visited = new int[cells];
+    int count = 0;
+    BitSet alreadySeen = new BitSet(cells);
+    IntMinHeap worklist = new IntMinHeap(64);
+    worklist.add(from, this.manhattan(from, to));
+    parents[from] = from;
+    steps[from] = 0;
+
+    while (!worklist.isEmpty()) {
+      int next = worklist.removeMin();
+      if (next == to) {
+        SearchResult result = new SearchResult(Arrays.copyOf(visited, count), parents, 
+            this.reconstruct(parents, from, to));
+        result.frontierPeak = worklist.highWater;
+        return result;
+      }
+      else if (!alreadySeen.get(next)) {
+        alreadySeen.set(next);
+        for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+          int neighbor = this.grid.open(next, direction);
+          if (neighbor != -1 && !alreadySeen.get(neighbor) 
+              && steps[next] + 1 < steps[neighbor]) {
+            steps[neighbor] = steps[next] + 1;
+            parents[neighbor] = next;
+            worklist.add(neighbor, steps[neighbor] + this.manhattan(neighbor, to));
+          }
+        }
+        visited[count] = next;
+        count++;
+      }
+    }
+    SearchResult result = new SearchResult(Arrays.copyOf(visited, count), parents, new int[0]);
+    result.frontierPeak = worklist.highWater;
+    return result;
+  }
+
+  // to do the breadth-first search from both the given cells at once, a whole level at
+  // a time from the side with the smaller frontier, until the two searches meet
+  // the parents of the result are the ones of the search from the start
+  SearchResult searchBidirectional(int from, int to) {
+    int cells = this.grid.cells();
+    int[] parentsFrom = new int[cells];
+    int[] parentsTo = new int[cells];
+    Arrays.fill(parentsFrom, -1);
+    Arrays.fill(parentsTo, -1);
+    int[] stepsFrom = new int[cells];
+    int[] stepsTo = new int[cells];
+    int[] visited = new int[cells];
+    int count = 0;
+    IntDeque worklistFrom = new IntDeque(64);
+    IntDeque worklistTo = new IntDeque(64);
+    worklistFrom.addLast(from);
+    worklistTo.addLast(to);
+    parentsFrom[from] = from;
+    parentsTo[to] = to;
+    int meet = from == to ? from : -1;
+
+    while (meet == -1 && !worklistFrom.isEmpty() && !worklistTo.isEmpty()) {
+      boolean forward = worklistFrom.size <= worklistTo.size;
+      IntDeque worklist = forward ? worklistFrom : worklistTo;
+      int[] parents = forward ? parentsFrom : parentsTo;
+      int[] steps = forward ? stepsFrom : stepsTo;
+      int[] otherParents = forward ? parentsTo : parentsFrom;
+      int[] otherSteps = forward ? stepsTo : stepsFrom;
+      int best = Integer.MAX_VALUE;
+
+      // finish the whole level, so the meeting cell with the fewest steps wins
+      for (int level = worklist.size; level > 0; level--) {
+        int next = worklist.removeFirst();
+        for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+          int neighbor = this.grid.open(next, direction);
+          if (neighbor != -1 && parents[neighbor] == -1) {
+            parents[neighbor] = next;
+            steps[neighbor] = steps[next] + 1;
+            worklist.addLast(neighbor);
+            if (otherParents[neighbor] != -1 && steps[neighbor] + otherSteps[neighbor] < best) {
+              best = steps[neighbor] + otherSteps[neighbor];
+              meet = neighbor;
+            }
+          }
+        }
+        visited[count] = next;
+        count++;
+      }
+    }
+
+    int frontierPeak = worklistFrom.highWater + worklistTo.highWater;
+    if (meet == -1) {
+      SearchResult result = new SearchResult(Arrays.copyOf(visited, count), parentsFrom, 
+          new int[0]);
+      result.frontierPeak = frontierPeak;
+      return result;
+    }
+    int[] path = new int[stepsFrom[meet] + stepsTo[meet] + 1];
+    int cell = meet;
+    path[stepsTo[meet]] = meet;
+    for (int i = stepsTo[meet] - 1; i >= 0; i--) {
+      cell = parentsTo[cell];
+      path[i] = cell;
+    }
+    cell = meet;
+    for (int i = stepsTo[meet] + 1; i < path.length; i++) {
+      cell = parentsFrom[cell];
+      path[i] = cell;
+    }
+    SearchResult result = new SearchResult(Arrays.copyOf(visited, count), parentsFrom, path);
+    result.frontierPeak = frontierPeak;
+    return result;
+  }
+
+  // to reconstruct the path from the end back to the beginning
+  int[] reconstruct(int[] parents, int begin, int end) {
+    int length = 1;
+    for (int cell = end; cell != begin; cell = parents[cell]) {
+      length++;
+    }
+    int[] path = new int[length];
+    int cell = end;
+    for (int i = 0; i < length; i++) {
+      path[i] = cell;
+      cell = parents[cell];
+    }
+    return path;
+  }
+}
+
+// to answer questions about the paths of a perfect maze, where there is exactly one path
+// between any two cells, by rooting its tree at the given cell once
+// the lowest common ancestor of two cells is the shallowest cell strictly after the
+// first and up to the second in depth-first order, or rather the parent of that cell,
+// so a sparse table of those minimums answers it in constant time
+// cells the root cannot reach have the depth -1 and no distance to any cell
+class MazeTree {
+  MazeGrid grid;
+  int[] parents;
+  int[] depths;
+  int[] starts;
+  int[] ends;
+  int[][] shallowest;
+
+  MazeTree(MazeGrid grid, int root) {
+    int cells = grid.cells();
+    this.grid = grid;
+    this.parents = new int[cells];
+    this.depths = new int[cells];
+    this.starts = new int[cells];
+    this.ends = new int[cells];
+    Arrays.fill(this.parents, -1);
+    Arrays.fill(this.depths, -1);
+    int[] order = new int[cells];
+    int count = this.visit(root, order);
+    for (int i = count - 1; i > 0; i--) {
+      this.ends[this.parents[order[i]]] = Math.max(this.ends[this.parents[order[i]]], 
+          this.ends[order[i]]);
+    }
+    this.buildTable(Arrays.copyOf(order, count));
+  }
+
+  // EFFECT: to number the cells reachable from the given root in depth-first order,
+  // putting them in the given order, and set their parents, depths and the end of
+  // their own numbers (only counting themselves so far)
+  // returns the number of cells reached
+  int visit(int root, int[] order) {
+    int[] stack = new int[Math.max(order.length, 1)];
+    int size = 0;
+    int count = 0;
+    stack[size++] = root;
+    this.parents[root] = root;
+    this.depths[root] = 0;
+    while (size > 0) {
+      int cell = stack[--size];
+      this.starts[cell] = count;
+      this.ends[cell] = count + 1;
+      order[count++] = cell;
+      for (int direction = MazeGrid.RIGHT; direction >= MazeGrid.UP; direction--) {
+        int neighbor = this.grid.open(cell, direction);
+        if (neighbor != -1 && this.depths[neighbor] == -1) {
+          this.parents[neighbor] = cell;
+          this.depths[neighbor] = this.depths[cell] + 1;
+          stack[size++] = neighbor;
+        }
+      }
+    }
+    return count;
+  }
+
+  // EFFECT: to build the sparse table of the shallowest cells of the given depth-first
+  // order, where level k holds the shallowest cell of the 2^k cells from each position
+  void buildTable(int[] order) {
+    int levels = 1;
+    while ((1 << levels) <= order.length) {
+      levels++;
+    }
+    this.shallowest = new int[levels][];
+    this.shallowest[0] = order;
+    for (int k = 1; k < levels; k++) {
+      int[] below = this.shallowest[k - 1];
+      int[] level = new int[order.length - (1 << k) + 1];
+      for (int i = 0; i < level.length; i++) {
+        level[i] = this.shallower(below[i], below[i + (1 << (k - 1))]);
+      }
+      this.shallowest[k] = level;
+    }
+  }
+
+  // to return the shallower of the two given cells
+  int shallower(int cell1, int cell2) {
+    return this.depths[cell1] <= this.depths[cell2] ? cell1 : cell2;
+  }
+
+  // to check if the first given cell is on the path from the root to the second one
+  boolean isAncestor(int ancestor, int cell) {
+    return this.starts[ancestor] <= this.starts[cell] 
+        && this.starts[cell] < this.ends[ancestor];
+  }
+
+  // to return the cell where the paths from the root to the two given cells split, or
+  // -1 if the root cannot reach one of them
+  int lowestCommonAncestor(int cell1, int cell2) {
+    if (this.depths[cell1] == -1 || this.depths[cell2] == -1) {
+      return -1;
+    }
+    if (cell1 == cell2) {
+      return cell1;
+    }
+    int lo = Math.min(this.starts[cell1], this.starts[cell2]) + 1;
+    int hi = Math.max(this.starts[cell1], this.starts[cell2]);
+    int k = 31 - Integer.numberOfLeadingZeros(hi - lo + 1);
+    return this.parents[this.shallower(this.shallowest[k][lo], 
+        this.shallowest[k][hi - (1 << k) + 1])];
+  }
+
+  // to return the number of steps between the two given cells, or -1 if there is no
+  // path between them
+  int distance(int cell1, int cell2) {
+    int ancestor = this.lowestCommonAncestor(cell1, cell2);
+    if (ancestor == -1) {
+      return -1;
+    }
+    return this.depths[cell1] + this.depths[cell2] - 2 * this.depths[ancestor];
+  }
+
+  // to return the neighbour of the given cell on the way down to the given cell below it
+  int childToward(int cell, int below) {
+    for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+      int neighbor = this.grid.open(cell, direction);
+      if (neighbor != -1 && this.parents[neighbor] == cell 
+          && this.isAncestor(neighbor, below)) {
+        return neighbor;
+      }
+    }
+    throw new RuntimeException("No cell below " + cell + " leads to " + below);
+  }
+
+  // to return the cells on the path from the first given cell to the second one, one
+  // at a time as they are asked for, or no cells if there is no path between them
+  TreePath path(int from, int to) {
+    return new TreePath(this, from, to);
+  }
+}
+
+// to walk the path between two cells of a MazeTree lazily, first up from the start to
+// the lowest common ancestor and then down to the goal
+class TreePath implements PrimitiveIterator.OfInt {
+  MazeTree tree;
+  int to;
+  int ancestor;
+  int next;
+  boolean up = true;
+
+  TreePath(MazeTree tree, int from, int to) {
+    this.tree = tree;
+    this.to = to;
+    this.ancestor = tree.lowestCommonAncestor(from, to);
+    this.next = this.ancestor == -1 ? -1 : from;
+  }
+
+  // to check if the path has more cells
+  public boolean hasNext() {
+    return this.next != -1;
+  }
+
+  // EFFECT: to return the next cell of the path and move past it
+  public int nextInt() {
+    if (this.next == -1) {
+      throw new NoSuchElementException("The path has no more cells");
+    }
+    int cell = this.next;
+    if (cell == this.to) {
+      this.next = -1;
+    }
+    else if (this.up && cell != this.ancestor) {
+      this.next = this.tree.parents[cell];
+    }
+    else {
+      this.up = false;
+      this.next = this.tree.childToward(cell, this.to);
+    }
+    return cell;
+  }
+}
+
+// to represent how far every cell of a maze is from one root cell, found by one
+// breadth-first pass, so the distance of a cell takes constant time to look up
+// cells the root cannot reach have the distance -1
+class DistanceField {
+  MazeGrid grid;
+  int root;
+  int[] distances;
+  int farthest;
+  int diameter = -1;
+
+  DistanceField(MazeGrid grid, int root) {
+    this.grid = grid;
+    this.root = root;
+    this.distances = new int[grid.cells()];
+    this.farthest = this.sweep(root, this.distances);
+  }
+
+  // EFFECT: to fill the given distances from the given cell by a breadth-first pass
+  // returns the last cell reached, which is one of the farthest from the given cell
+  int sweep(int from, int[] distances) {
+    Arrays.fill(distances, -1);
+    int[] queue = new int[distances.length];
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = from;
+    distances[from] = 0;
+    while (head < tail) {
+      int cell = queue[head++];
+      for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+        int neighbor = this.grid.open(cell, direction);
+        if (neighbor != -1 && distances[neighbor] == -1) {
+          distances[neighbor] = distances[cell] + 1;
+          queue[tail++] = neighbor;
+        }
+      }
+    }
+    return queue[tail - 1];
+  }
+
+  // to return the number of steps from the root to the given cell
+  int distance(int cell) {
+    return this.distances[cell];
+  }
+
+  // to return the number of steps from the root to the farthest cell
+  int maxDistance() {
+    return this.distances[this.farthest];
+  }
+
+  // to return the share of the cells of the maze that are on the path from the root to
+  // the given cell, e.g. how much of the maze the solution walks through
+  double pathShare(int cell) {
+    return (this.distances[cell] + 1) / (double) this.distances.length;
+  }
+
+  // to return the number of steps of the longest path of the part of a perfect maze
+  // the root can reach, which starts at the farthest cell from the root, so one more
+  // pass finds it the first time it is asked for
+  int diameter() {
+    if (this.diameter == -1) {
+      int[] fromFarthest = new int[this.distances.length];
+      this.diameter = fromFarthest[this.sweep(this.farthest, fromFarthest)];
+    }
+    return this.diameter;
+  }
+}
+
+// to solve a maze again and again on its junctions instead of its cells: every corridor
+// of cells with exactly two passages is contracted into one weighted edge between the
+// junctions or dead ends at its two ends, so a search only expands the junctions and
+// copies the cells of the corridors it takes into the path at the end
+// the interior cells of every corridor are kept in order from its source to its target
+// in interior, from corridorStarts[c] up to corridorStarts[c + 1], and every corridor is
+// an edge both ways in the adjacency arrays: edgeStarts[node] up to edgeStarts[node + 1]
+// are the edges of a node, heads the node at their other end and routes their corridor
+// (~corridor if it is taken from its target to its source)
+// a ring of cells with no junction at all gets one of its cells as a junction
+class JunctionGraph {
+  static final int SEED = -1;
+  static final int SEED_SOURCE = -2;
+  static final int SEED_TARGET = -3;
+  static final int UNSEEN = -4;
+
+  MazeGrid grid;
+  int[] junctions;
+  int[] nodeCells;
+  int nodes;
+  int[] corridorOf;
+  int[] along;
+  int[] interior;
+  int[] corridorStarts;
+  int[] corridorSources;
+  int[] corridorTargets;
+  int corridors;
+  int[] edgeStarts;
+  int[] heads;
+  int[] routes;
+  // no corridor closes a loop, as in a perfect maze
+  boolean acyclic;
+
+  JunctionGraph(MazeGrid grid) {
+    int cells = grid.cells();
+    this.grid = grid;
+    this.junctions = new int[cells];
+    this.nodeCells = new int[cells];
+    this.corridorOf = new int[cells];
+    this.along = new int[cells];
+    this.interior = new int[cells];
+    this.corridorStarts = new int[2 * cells + 1];
+    this.corridorSources = new int[2 * cells];
+    this.corridorTargets = new int[2 * cells];
+    Arrays.fill(this.junctions, -1);
+    Arrays.fill(this.corridorOf, -1);
+    for (int cell = 0; cell < cells; cell++) {
+      if (this.passages(cell) != 2) {
+        this.junctions[cell] = this.nodes;
+        this.nodeCells[this.nodes] = cell;
+        this.nodes++;
+      }
+    }
+    for (int node = 0; node < this.nodes; node++) {
+      this.traceAll(node);
+    }
+    for (int cell = 0; cell < cells; cell++) {
+      if (this.junctions[cell] == -1 && this.corridorOf[cell] == -1) {
+        this.junctions[cell] = this.nodes;
+        this.nodeCells[this.nodes] = cell;
+        this.nodes++;
+        this.traceAll(this.nodes - 1);
+      }
+    }
+    this.nodeCells = Arrays.copyOf(this.nodeCells, this.nodes);
+    this.interior = Arrays.copyOf(this.interior, this.corridorStarts[this.corridors]);
+    this.corridorStarts = Arrays.copyOf(this.corridorStarts, this.corridors + 1);
+    this.corridorSources = Arrays.copyOf(this.corridorSources, this.corridors);
+    this.corridorTargets = Arrays.copyOf(this.corridorTargets, this.corridors);
+    this.buildEdges();
+    this.acyclic = this.corridors == this.nodes - this.components();
+  }
+
+  // to count the passages out of the given cell
+  int passages(int cell) {
+    int passages = 0;
+    for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+      if (this.grid.open(cell, direction) != -1) {
+        passages++;
+      }
+    }
+    return passages;
+  }
+
+  // EFFECT: to trace every corridor out of the given node that was not traced yet
+  // from its other end
+  void traceAll(int node) {
+    int cell = this.nodeCells[node];
+    for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+      int next = this.grid.open(cell, direction);
+      if (next == -1 || this.corridorOf[next] != -1) {
+        // do nothing: there is a wall or the corridor is already traced
+      }
+      else if (this.junctions[next] != -1) {
+        // a corridor without interior cells, traced from its lower end only
+        if (cell < next) {
+          this.addCorridor(node, this.junctions[next], 0);
+        }
+      }
+      else {
+        this.trace(node, next);
+      }
+    }
+  }
+
+  // EFFECT: to walk the corridor from the given node through the given cell up to the
+  // node at its other end, numbering its interior cells on the way
+  void trace(int node, int first) {
+    int corridor = this.corridors;
+    int start = this.corridorStarts[corridor];
+    int previous = this.nodeCells[node];
+    int cell = first;
+    int steps = 0;
+    while (this.junctions[cell] == -1) {
+      steps++;
+      this.corridorOf[cell] = corridor;
+      this.along[cell] = steps;
+      this.interior[start + steps - 1] = cell;
+      int next = this.other(cell, previous);
+      previous = cell;
+      cell = next;
+    }
+    this.addCorridor(node, this.junctions[cell], steps);
+  }
+
+  // to return the passage out of the given corridor cell that does not lead to the
+  // given cell
+  int other(int cell, int previous) {
+    for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+      int next = this.grid.open(cell, direction);
+      if (next != -1 && next != previous) {
+        return next;
+      }
+    }
+    throw new IllegalStateException("Cell " + cell + " is not in a corridor");
+  }
+
+  // EFFECT: to add the corridor last traced, from the given node to the given node
+  // through the given number of interior cells
+  void addCorridor(int source, int target, int cells) {
+    this.corridorStarts[this.corridors + 1] = this.corridorStarts[this.corridors] + cells;
+    this.corridorSources[this.corridors] = source;
+    this.corridorTargets[this.corridors] = target;
+    this.corridors++;
+  }
+
+  // EFFECT: to put every corridor in the adjacency arrays once from each end
+  void buildEdges() {
+    this.edgeStarts = new int[this.nodes + 1];
+    for (int c = 0; c < this.corridors; c++) {
+      this.edgeStarts[this.corridorSources[c] + 1]++;
+      this.edgeStarts[this.corridorTargets[c] + 1]++;
+    }
+    for (int node = 0; node < this.nodes; node++) {
+      this.edgeStarts[node + 1] += this.edgeStarts[node];
+    }
+    this.heads = new int[2 * this.corridors];
+    this.routes = new int[2 * this.corridors];
+    int[] next = Arrays.copyOf(this.edgeStarts, this.nodes);
+    for (int c = 0; c < this.corridors; c++) {
+      int forward = next[this.corridorSources[c]]++;
+      this.heads[forward] = this.corridorTargets[c];
+      this.routes[forward] = c;
+      int backward = next[this.corridorTargets[c]]++;
+      this.heads[backward] = this.corridorSources[c];
+      this.routes[backward] = ~c;
+    }
+  }
+
+  // to count the parts of the maze no corridor joins, by a depth-first pass over the
+  // junctions
+  int components() {
+    BitSet seen = new BitSet(this.nodes);
+    int[] stack = new int[Math.max(this.nodes, 1)];
+    int components = 0;
+    for (int root = 0; root < this.nodes; root++) {
+      if (!seen.get(root)) {
+        components++;
+        seen.set(root);
+        int size = 0;
+        stack[size++] = root;
+        while (size > 0) {
+          int node = stack[--size];
+          for (int edge = this.edgeStarts[node]; edge < this.edgeStarts[node + 1]; edge++) {
+            if (!seen.get(this.heads[edge])) {
+              seen.set(this.heads[edge]);
+              stack[size++] = this.heads[edge];
+            }
+          }
+        }
+      }
+    }
+    return components;
+  }
+
+  // to return the number of steps from one end of the given corridor to the other
+  int weight(int corridor) {
+    return this.corridorStarts[corridor + 1] - this.corridorStarts[corridor] + 1;
+  }
+
+  // to return the interior cell of the given corridor the given number of steps from
+  // its source
+  int cellAlong(int corridor, int steps) {
+    return this.interior[this.corridorStarts[corridor] + steps - 1];
+  }
+
+  // to solve the maze from the given cell to the given cell on the junctions, timing
+  // the search like GridSearch.solve
+  SearchResult solve(int from, int to) {
+    long start = System.nanoTime();
+    SearchResult result = this.search(from, to);
+    result.elapsedNanos = System.nanoTime() - start;
+    MazePhaseEvent.emit("search", "j", this.grid.cells(), result.elapsedNanos, 
+        result.expanded(), 0, null, result.frontierPeak);
+    return result;
+  }
+
+  // to find the shortest path from the given cell to the given cell: in a perfect maze
+  // there is only one path, so a breadth-first search of the junctions finds it,
+  // otherwise the corridors have to be weighed by Dijkstra's algorithm
+  // visited is the junctions in the order they were expanded, parents is empty as it
+  // would be as big as the maze, and path is in cells like every other search
+  SearchResult search(int from, int to) {
+    if (this.acyclic) {
+      return this.searchTree(from, to);
+    }
+    else {
+      return this.searchShortest(from, to);
+    }
+  }
+
+  // to find the only path from the given cell to the given cell of a perfect maze by
+  // the breadth-first search of the junctions from the ends of the corridor of the
+  // start, up to the first end of the corridor of the goal (or the goal itself)
+  // dead ends other than those are never queued, as no path goes on from them
+  SearchResult searchTree(int from, int to) {
+    int[] vias = new int[this.nodes];
+    Arrays.fill(vias, UNSEEN);
+    int[] visited = new int[this.nodes];
+    int count = 0;
+    IntDeque worklist = new IntDeque(this.nodes);
+    int fromCorridor = this.corridorOf[from];
+    int toCorridor = this.corridorOf[to];
+    boolean direct = from == to || (fromCorridor != -1 && fromCorridor == toCorridor);
+    int goal = toCorridor == -1 ? this.junctions[to] : this.corridorSources[toCorridor];
+    int otherGoal = toCorridor == -1 ? goal : this.corridorTargets[toCorridor];
+    if (direct) {
+      // do nothing: the goal is the start or in the same corridor
+    }
+    else if (fromCorridor == -1) {
+      vias[this.junctions[from]] = SEED;
+      worklist.addLast(this.junctions[from]);
+    }
+    else {
+      vias[this.corridorSources[fromCorridor]] = SEED_SOURCE;
+      vias[this.corridorTargets[fromCorridor]] = SEED_TARGET;
+      worklist.addLast(this.corridorSources[fromCorridor]);
+      worklist.addLast(this.corridorTargets[fromCorridor]);
+    }
+
+    while (!worklist.isEmpty()) {
+      int node = worklist.removeFirst();
+      visited[count] = this.nodeCells[node];
+      count++;
+      if (node == goal || node == otherGoal) {
+        SearchResult result = new SearchResult(Arrays.copyOf(visited, count), new int[0], 
+            this.expand(from, to, node, toCorridor != -1 && node == goal, vias));
+        result.frontierPeak = worklist.highWater;
+        return result;
+      }
+      for (int edge = this.edgeStarts[node]; edge < this.edgeStarts[node + 1]; edge++) {
+        int next = this.heads[edge];
+        if (vias[next] == UNSEEN) {
+          vias[next] = edge;
+          if (this.edgeStarts[next + 1] - this.edgeStarts[next] > 1 || next == goal 
+              || next == otherGoal) {
+            worklist.addLast(next);
+          }
+        }
+      }
+    }
+    int[] path = direct ? this.expand(from, to, -1, false, vias) : new int[0];
+    SearchResult result = new SearchResult(Arrays.copyOf(visited, count), new int[0], path);
+    result.frontierPeak = worklist.highWater;
+    return result;
+  }
+
+  // to find the shortest path from the given cell to the given cell by Dijkstra's
+  // algorithm on the junctions, starting from the ends of the corridor of the start and
+  // stopping as soon as no junction left can be closer than the goal
+  SearchResult searchShortest(int from, int to) {
+    int[] distances = new int[this.nodes];
+    int[] vias = new int[this.nodes];
+    Arrays.fill(distances, Integer.MAX_VALUE);
+    int[] visited = new int[this.nodes];
+    int count = 0;
+    BitSet settled = new BitSet(this.nodes);
+    IntMinHeap worklist = new IntMinHeap(64);
+    int fromCorridor = this.corridorOf[from];
+    int toCorridor = this.corridorOf[to];
+    if (fromCorridor == -1) {
+      this.relax(this.junctions[from], 0, SEED, distances, vias, worklist);
+    }
+    else {
+      this.relax(this.corridorSources[fromCorridor], this.along[from], SEED_SOURCE, 
+          distances, vias, worklist);
+      this.relax(this.corridorTargets[fromCorridor], 
+          this.weight(fromCorridor) - this.along[from], SEED_TARGET, distances, vias, 
+          worklist);
+    }
+    // the goal is reached right away if it is the start or in the same corridor
+    int best = Integer.MAX_VALUE;
+    if (from == to) {
+      best = 0;
+    }
+    else if (fromCorridor != -1 && fromCorridor == toCorridor) {
+      best = Math.abs(this.along[to] - this.along[from]);
+    }
+    int bestNode = -1;
+    boolean bestFromSource = false;
+
+    while (!worklist.isEmpty() && worklist.priorities[0] < best) {
+      int node = worklist.removeMin();
+      if (settled.get(node)) {
+        // do nothing: the node was reached again before it was expanded
+      }
+      else {
+        settled.set(node);
+        visited[count] = this.nodeCells[node];
+        count++;
+        if (toCorridor == -1 && this.junctions[to] == node) {
+          best = distances[node];
+          bestNode = node;
+        }
+        else if (toCorridor != -1) {
+          if (this.corridorSources[toCorridor] == node 
+              && distances[node] + this.along[to] < best) {
+            best = distances[node] + this.along[to];
+            bestNode = node;
+            bestFromSource = true;
+          }
+          if (this.corridorTargets[toCorridor] == node 
+              && distances[node] + this.weight(toCorridor) - this.along[to] < best) {
+            best = distances[node] + this.weight(toCorridor) - this.along[to];
+            bestNode = node;
+            bestFromSource = false;
+          }
+        }
+        for (int edge = this.edgeStarts[node]; edge < this.edgeStarts[node + 1]; edge++) {
+          int corridor = this.routes[edge] < 0 ? ~this.routes[edge] : this.routes[edge];
+          this.relax(this.heads[edge], distances[node] + this.weight(corridor), edge, 
+              distances, vias, worklist);
+        }
+      }
+    }
+
+    int[] path = best == Integer.MAX_VALUE ? new int[0] 
+        : this.expand(from, to, bestNode, bestFromSource, vias);
+    SearchResult result = new SearchResult(Arrays.copyOf(visited, count), new int[0], path);
+    result.frontierPeak = worklist.highWater;
+    return result;
+  }
+
+  // EFFECT: to reach the given node with the given distance through the given edge
+  // (or from a corridor end of the start) if that is shorter than before
+  void relax(int node, int distance, int via, int[] distances, int[] vias, 
+      IntMinHeap worklist) {
+    if (distance < distances[node]) {
+      distances[node] = distance;
+      vias[node] = via;
+      worklist.add(node, distance);
+    }
+  }
+
+  // to return the cells of the path from the given cell to the given cell, which goes
+  // through the given node last, into the corridor of the goal from its source or not
+  // (or is all in one corridor if the node is -1), copying the corridors on the way,
+  // from the goal back to the start
+  int[] expand(int from, int to, int bestNode, boolean bestFromSource, int[] vias) {
+    int[] path = new int[this.length(from, to, bestNode, bestFromSource, vias) + 1];
+    int pos = 0;
+    path[pos++] = from;
+    if (bestNode == -1) {
+      int corridor = this.corridorOf[from];
+      int step = this.along[to] > this.along[from] ? 1 : -1;
+      for (int steps = this.along[from]; steps != this.along[to]; ) {
+        steps += step;
+        path[pos++] = this.cellAlong(corridor, steps);
+      }
+    }
+    else {
+      int edges = 0;
+      int node = bestNode;
+      while (vias[node] >= 0) {
+        edges++;
+        node = this.tail(vias[node]);
+      }
+      int[] taken = new int[edges];
+      node = bestNode;
+      for (int i = edges - 1; i >= 0; i--) {
+        taken[i] = vias[node];
+        node = this.tail(vias[node]);
+      }
+      // from the start to the end of its corridor
+      int corridor = this.corridorOf[from];
+      if (vias[node] == SEED_SOURCE) {
+        for (int steps = this.along[from] - 1; steps > 0; steps--) {
+          path[pos++] = this.cellAlong(corridor, steps);
+        }
+        path[pos++] = this.nodeCells[node];
+      }
+      else if (vias[node] == SEED_TARGET) {
+        for (int steps = this.along[from] + 1; steps < this.weight(corridor); steps++) {
+          path[pos++] = this.cellAlong(corridor, steps);
+        }
+        path[pos++] = this.nodeCells[node];
+      }
+      for (int edge : taken) {
+        pos = this.copyRoute(this.routes[edge], path, pos);
+        path[pos++] = this.nodeCells[this.heads[edge]];
+      }
+      // from the end of the corridor of the goal to the goal
+      corridor = this.corridorOf[to];
+      if (corridor != -1 && bestFromSource) {
+        for (int steps = 1; steps <= this.along[to]; steps++) {
+          path[pos++] = this.cellAlong(corridor, steps);
+        }
+      }
+      else if (corridor != -1) {
+        for (int steps = this.weight(corridor) - 1; steps >= this.along[to]; steps--) {
+          path[pos++] = this.cellAlong(corridor, steps);
+        }
+      }
+    }
+    for (int i = 0, j = path.length - 1; i < j; i++, j--) {
+      int cell = path[i];
+      path[i] = path[j];
+      path[j] = cell;
+    }
+    return path;
+  }
+
+  // to return the number of steps of the path expand returns
+  int length(int from, int to, int bestNode, boolean bestFromSource, int[] vias) {
+    if (bestNode == -1) {
+      return Math.abs(this.along[to] - this.along[from]);
+    }
+    int length = 0;
+    int node = bestNode;
+    while (vias[node] >= 0) {
+      int route = this.routes[vias[node]];
+      length += this.weight(route < 0 ? ~route : route);
+      node = this.tail(vias[node]);
+    }
+    int fromCorridor = this.corridorOf[from];
+    if (vias[node] == SEED_SOURCE) {
+      length += this.along[from];
+    }
+    else if (vias[node] == SEED_TARGET) {
+      length += this.weight(fromCorridor) - this.along[from];
+    }
+    int toCorridor = this.corridorOf[to];
+    if (toCorridor != -1 && bestFromSource) {
+      length += this.along[to];
+    }
+    else if (toCorridor != -1) {
+      length += this.weight(toCorridor) - this.along[to];
+    }
+    return length;
+  }
+
+  // to return the node the given edge leaves from
+  int tail(int edge) {
+    int route = this.routes[edge];
+    return route < 0 ? this.corridorTargets[~route] : this.corridorSources[route];
+  }
+
+  // EFFECT: to copy the interior cells of the given route, in the order it takes them,
+  // into the given path from the given position
+  // returns the position after them
+  int copyRoute(int route, int[] path, int pos) {
+    int corridor = route < 0 ? ~route : route;
+    int start = this.corridorStarts[corridor];
+    int end = this.corridorStarts[corridor + 1];
+    if (route >= 0) {
+      System.arraycopy(this.interior, start, path, pos, end - start);
+    }
+    else {
+      for (int i = end - 1; i >= start; i--) {
+        path[pos + end - 1 - i] = this.interior[i];
+      }
+    }
+    return pos + end - start;
+  }
+}
+
+// to keep the shortest path between two cells of a maze whose walls change while it is
+// solved, by Lifelong Planning A*: every cell keeps its steps from the start (g) and
+// the steps one of its neighbours offers (rhs), and only the cells where the two differ
+// are put back on the worklist, so an edit only searches again around the wall it
+// touched, and not at all if the search never got near it
+// the priority of a cell packs min(g, rhs) + manhattan distance to the goal and then
+// min(g, rhs) into one long; entries whose priority is out of date are dropped when
+// they come off the worklist, and the worklist is rebuilt when they pile up
+// the goal can be reached from the start exactly when its g is not INFINITE
+class PathRepair {
+  static final int INFINITE = Integer.MAX_VALUE / 2;
+
+  MazeGrid grid;
+  int start;
+  int goal;
+  int[] g;
+  int[] rhs;
+  IntMinHeap worklist;
+  // the cells expanded since the last call to path, for the cost of the last repair
+  int expanded = 0;
+
+  PathRepair(MazeGrid grid, int start, int goal) {
+    this.grid = grid;
+    this.start = start;
+    this.goal = goal;
+    this.g = new int[grid.cells()];
+    this.rhs = new int[grid.cells()];
+    Arrays.fill(this.g, INFINITE);
+    Arrays.fill(this.rhs, INFINITE);
+    this.worklist = new IntMinHeap(64);
+    this.rhs[start] = 0;
+    this.worklist.add(start, this.key(start));
+    this.computePath();
+  }
+
+  // to return the priority of the given cell
+  long key(int cell) {
+    int best = Math.min(this.g[cell], this.rhs[cell]);
+    int row = cell / this.grid.cols;
+    int col = cell % this.grid.cols;
+    int estimate = best + Math.abs(row - this.goal / this.grid.cols) 
+        + Math.abs(col - this.goal % this.grid.cols);
+    return ((long) estimate << 32) | best;
+  }
+
+  // EFFECT: to take the fewest steps any open neighbour of the given cell offers as its
+  // rhs, and queue the cell if that is not its g
+  void updateCell(int cell) {
+    if (cell != this.start) {
+      int best = INFINITE;
+      for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+        int neighbor = this.grid.open(cell, direction);
+        if (neighbor != -1 && this.g[neighbor] + 1 < best) {
+          best = this.g[neighbor] + 1;
+        }
+      }
+      this.rhs[cell] = best;
+    }
+    if (this.g[cell] != this.rhs[cell]) {
+      this.worklist.add(cell, this.key(cell));
+    }
+  }
+
+  // EFFECT: to update the open neighbours of the given cell
+  void updateNeighbors(int cell) {
+    for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+      int neighbor = this.grid.open(cell, direction);
+      if (neighbor != -1) {
+        this.updateCell(neighbor);
+      }
+    }
+  }
+
+  // EFFECT: to expand the cells whose g and rhs differ, lowest priority first, until
+  // the goal is settled and no cell left could give it a shorter path
+  void computePath() {
+    while (!this.worklist.isEmpty() && (this.worklist.priorities[0] < this.key(this.goal) 
+        || this.g[this.goal] != this.rhs[this.goal])) {
+      long priority = this.worklist.priorities[0];
+      int cell = this.worklist.removeMin();
+      if (priority != this.key(cell) || this.g[cell] == this.rhs[cell]) {
+        // do nothing: the entry is out of date, the cell is queued again if it needs to
+      }
+      else if (this.g[cell] > this.rhs[cell]) {
+        this.g[cell] = this.rhs[cell];
+        this.expanded++;
+        this.updateNeighbors(cell);
+      }
+      else {
+        this.g[cell] = INFINITE;
+        this.expanded++;
+        this.updateCell(cell);
+        this.updateNeighbors(cell);
+      }
+    }
+    if (this.worklist.size > 2 * this.g.length + 64) {
+      this.compact();
+    }
+  }
+
+  // EFFECT: to drop the out of date entries from the worklist
+  void compact() {
+    int[] items = Arrays.copyOf(this.worklist.items, this.worklist.size);
+    long[] priorities = Arrays.copyOf(this.worklist.priorities, this.worklist.size);
+    this.worklist = new IntMinHeap(64);
+    for (int i = 0; i < items.length; i++) {
+      if (priorities[i] == this.key(items[i]) && this.g[items[i]] != this.rhs[items[i]]) {
+        this.worklist.add(items[i], priorities[i]);
+      }
+    }
+  }
+
+  // EFFECT: to knock down the given wall, or put it back up if the given flag is set,
+  // and repair the path around it
+  void setWall(int wall, boolean standing) {
+    int cell = wall / 2;
+    int other = wall % 2 == 0 ? cell + 1 : cell + this.grid.cols;
+    if (wall % 2 == 0 ? cell % this.grid.cols == this.grid.cols - 1 
+        : other >= this.grid.cells()) {
+      throw new IllegalArgumentException("Wall " + wall + " is on the border of the maze");
+    }
+    if (standing) {
+      this.grid.addWall(wall);
+    }
+    else {
+      this.grid.removeWall(wall);
+    }
+    this.updateCell(cell);
+    this.updateCell(other);
+    this.computePath();
+  }
+
+  // to check if the goal can be reached from the start
+  boolean connected() {
+    return this.g[this.goal] < INFINITE;
+  }
+
+  // to return the number of steps of the shortest path, or -1 if there is none
+  int distance() {
+    return this.connected() ? this.g[this.goal] : -1;
+  }
+
+  // to return the shortest path from the goal back to the start, like SearchResult,
+  // following the neighbours one step closer to the start, or an empty path if there
+  // is none
+  int[] path() {
+    this.expanded = 0;
+    if (!this.connected()) {
+      return new int[0];
+    }
+    int[] path = new int[this.g[this.goal] + 1];
+    int cell = this.goal;
+    for (int i = 0; i < path.length; i++) {
+      path[i] = cell;
+      for (int direction = MazeGrid.UP; direction <= MazeGrid.RIGHT; direction++) {
+        int neighbor = this.grid.open(cell, direction);
+        if (neighbor != -1 && this.g[neighbor] == this.g[cell] - 1) {
+          cell = neighbor;
+          break;
+        }
+      }
+    }
+    return path;
+  }
+}
+
+// to represent a maze that never changes, so any number of threads can solve it at the
+// same time without locking: the snapshot keeps its own copy of the walls, which is
+// only read after the constructor, and every search keeps all of its state (worklist,
+// parents, visited cells) in the arrays of its own call, never in a Cell or a world
+// its junction graph is built with it and only read after, like the walls
+class MazeSnapshot {
+  final int rows;
+  final int cols;
+  final MazeGrid grid;
+  final JunctionGraph junctions;
+
+  MazeSnapshot(MazeGrid grid) {
+    this.rows = grid.rows;
+    this.cols = grid.cols;
+    MazeGrid copy = new MazeGrid(grid.rows, grid.cols);
+    System.arraycopy(grid.walls, 0, copy.walls, 0, grid.walls.length);
+    this.grid = copy;
+    this.junctions = new JunctionGraph(copy);
+  }
+
+  // to return the number of cells in this maze
+  int cells() {
+    return this.grid.cells();
+  }
+
+  // to check if there is no wall between the two given neighbouring cells
+  boolean connected(int cell1, int cell2) {
+    return this.grid.connected(cell1, cell2);
+  }
+
+  // to solve this maze from the given cell to the given cell with the search of the
+  // given key, like GridSearch.solve, or on the junctions of the maze for "j"
+  SearchResult solve(String key, int from, int to) {
+    if (key.equals("j")) {
+      return this.junctions.solve(from, to);
+    }
+    else {
+      return new GridSearch(this.grid).solve(key, from, to);
+    }
+  }
+
+  // to solve this maze for every pair of the given starts and goals with the search of
+  // the given key on the given pool, each pair on whichever thread is free, returning
+  // the paths (from the goal back to the start) in the order of the pairs
+  // only the paths are kept, as the parents and visited cells of every search are as
+  // big as the maze
+  int[][] solveAll(String key, int[] froms, int[] tos, ForkJoinPool pool) {
+    if (froms.length != tos.length) {
+      throw new IllegalArgumentException("Got " + froms.length + " starts but " + tos.length 
+          + " goals");
+    }
+    int[][] paths = new int[froms.length][];
+    pool.invoke(new RangeTask(0, froms.length, 1, (lo, hi) -> {
+      for (int i = lo; i < hi; i++) {
+        paths[i] = this.solve(key, froms[i], tos[i]).path;
+      }
+    }));
+    return paths;
+  }
+}
+
+// to paint a maze straight into the pixels of one image that is kept and reused
+// every cell is a square of cellSize pixels that also holds its own east and south walls,
+// so painting a cell again never touches the pixels of another cell
+// with a distance field it paints a heatmap of the distances from its root, picking
+// from a fixed palette so no color is made for a cell
+class MazeRaster {
+  static final Color[] HEAT = MazeRaster.heatPalette(64);
+
+  MazeGrid grid;
+  int cellSize;
+  ComputedPixelImage image;
+  DistanceField heat;
+
+  MazeRaster(MazeGrid grid, int cellSize) {
+    this(grid, cellSize, null);
+  }
+
+  MazeRaster(MazeGrid grid, int cellSize, DistanceField heat) {
+    this.grid = grid;
+    this.cellSize = cellSize;
+    this.heat = heat;
+    this.image = new ComputedPixelImage(grid.cols * cellSize, grid.rows * cellSize);
+    this.paintMaze();
+  }
+
+  // to return the given number of colors going from blue, near the root, to yellow
+  static Color[] heatPalette(int colors) {
+    Color[] palette = new Color[colors];
+    for (int i = 0; i < colors; i++) {
+      palette[i] = Color.getHSBColor(0.66f - 0.5f * i / (colors - 1), 0.8f, 0.9f);
+    }
+    return palette;
+  }
+
+  // EFFECT: to paint every cell of the maze
+  void paintMaze() {
+    for (int cell = 0; cell < this.grid.cells(); cell++) {
+      this.paintCell(cell);
+    }
+  }
+
+  // to return the color of the given cell, like MazesWorld.drawMaze, or else its heat
+  Color colorOf(int cell) {
+    return MazeRaster.colorOf(this.grid, this.heat, cell);
+  }
+
+  // to return the color of the given cell of the given grid with the given heat (or
+  // null), so a MazeViewport paints the cells like a raster
+  static Color colorOf(MazeGrid grid, DistanceField heat, int cell) {
+    if (grid.isExplored(cell) && grid.isSolution(cell)) {
+      return Color.RED;
+    }
+    else if (cell == 0) {
+      return Color.GREEN;
+    }
+    else if (cell == grid.cells() - 1) {
+      return Color.RED;
+    }
+    else if (heat != null && heat.distance(cell) != -1) {
+      return HEAT[(int) ((long) heat.distance(cell) * (HEAT.length - 1) 
+          / Math.max(1, heat.maxDistance()))];
+    }
+    else {
+      return Color.GRAY;
+    }
+  }
+
+  // EFFECT: to paint the given cell with its color and its east and south walls
+  // the walls of the outside of the maze are not drawn, like in MazesWorld.drawMaze
+  void paintCell(int cell) {
+    int row = cell / this.grid.cols;
+    int col = cell % this.grid.cols;
+    int left = col * this.cellSize;
+    int top = row * this.cellSize;
+    int last = this.cellSize - 1;
+    boolean eastWall = col < this.grid.cols - 1 && this.grid.hasWall(this.grid.eastWall(cell));
+    boolean southWall = row < this.grid.rows - 1 
+        && this.grid.hasWall(this.grid.southWall(cell));
+    Color color = this.colorOf(cell);
+    for (int y = 0; y < last; y++) {
+      for (int x = 0; x < last; x++) {
+        this.image.setPixel(left + x, top + y, color);
+      }
+      this.image.setPixel(left + last, top + y, eastWall ? Color.DARK_GRAY : color);
+    }
+    for (int x = 0; x < last; x++) {
+      this.image.setPixel(left + x, top + last, southWall ? Color.DARK_GRAY : color);
+    }
+    this.image.setPixel(left + last, top + last, 
+        this.cornerIsWall(cell, eastWall, southWall) ? Color.DARK_GRAY : color);
+  }
+
+  // to check if any of the four walls that meet at the bottom right corner of the given
+  // cell is standing, so that the corner pixel joins them up
+  boolean cornerIsWall(int cell, boolean eastWall, boolean southWall) {
+    return MazeRaster.cornerIsWall(this.grid, cell, eastWall, southWall);
+  }
+
+  // to check the same for the given cell of the given grid
+  static boolean cornerIsWall(MazeGrid grid, int cell, boolean eastWall, boolean southWall) {
+    int col = cell % grid.cols;
+    boolean inside = col < grid.cols - 1 && cell < grid.cells() - grid.cols;
+    return eastWall || southWall 
+        || (inside && grid.hasWall(grid.southWall(cell + 1))) 
+        || (inside && grid.hasWall(grid.eastWall(cell + grid.cols)));
+  }
+}
+
+// to show the part of a maze that fits on a screen of the given size, at any zoom,
+// painting only the cells inside the visible rectangle into one image of the size of
+// the screen, so a frame costs as much as the screen whatever the size of the maze
+// the grid is its own spatial index: the visible rows and columns give the cells and
+// their walls straight away, without walking the edges or the board
+// zoomed in, a cell is cellSize pixels wide with its east and south walls like in
+// MazeRaster; zoomed out to a pixel per cell or less, every pixel shows a square of
+// 2^level cells, read from a pyramid of levels that count the standing walls and the
+// solved cells of the squares of 2, 4, 8, ... cells, kept up to date a cell at a time
+// a level is only counted the first time the screen is zoomed out to it, so a viewport
+// on a maze of any size shows its first frame right away
+class MazeViewport {
+  static final int MAX_CELL_SIZE = 40;
+  static final Color OUTSIDE = Color.WHITE;
+  static final Color[] SHADES = MazeViewport.shades(16);
+
+  MazeGrid grid;
+  DistanceField heat;
+  int width;
+  int height;
+  ComputedPixelImage image;
+  int cellSize = 20;
+  int level = 0;
+  // the first visible column and row
+  int left = 0;
+  int top = 0;
+  // walls[k - 1] and solved[k - 1] are the counts of the squares of 2^k cells, for the
+  // levels up to built
+  int[][] walls;
+  int[][] solved;
+  int built = 0;
+  // something visible changed since the last render
+  boolean stale = true;
+
+  MazeViewport(MazeGrid grid, int width, int height, DistanceField heat) {
+    this.grid = grid;
+    this.width = width;
+    this.height = height;
+    this.heat = heat;
+    this.image = new ComputedPixelImage(width, height);
+    int levels = 0;
+    while ((1 << levels) < Math.max(grid.rows, grid.cols)) {
+      levels++;
+    }
+    this.walls = new int[levels][];
+    this.solved = new int[levels][];
+  }
+
+  // EFFECT: to count the squares of every level up to the given one that was not
+  // counted yet
+  void buildLevels(int level) {
+    while (this.built < level) {
+      this.built++;
+      int k = this.built;
+      this.walls[k - 1] = new int[this.blockRows(k) * this.blockCols(k)];
+      this.solved[k - 1] = new int[this.blockRows(k) * this.blockCols(k)];
+      for (int block = 0; block < this.walls[k - 1].length; block++) {
+        this.refresh(k, block / this.blockCols(k), block % this.blockCols(k));
+      }
+    }
+  }
+
+  // to return the given number of grays going from the gray of a passage to the dark
+  // gray of a wall
+  static Color[] shades(int colors) {
+    Color[] palette = new Color[colors];
+    for (int i = 0; i < colors; i++) {
+      palette[i] = new Color(128 - 64 * i / (colors - 1), 128 - 64 * i / (colors - 1), 
+          128 - 64 * i / (colors - 1));
+    }
+    return palette;
+  }
+
+  // to return the number of rows of squares at the given level
+  int blockRows(int k) {
+    return (this.grid.rows + (1 << k) - 1) >> k;
+  }
+
+  // to return the number of columns of squares at the given level
+  int blockCols(int k) {
+    return (this.grid.cols + (1 << k) - 1) >> k;
+  }
+
+  // to count the standing east and south walls of the given cell
+  int cellWalls(int cell) {
+    return (this.grid.hasWall(this.grid.eastWall(cell)) ? 1 : 0) 
+        + (this.grid.hasWall(this.grid.southWall(cell)) ? 1 : 0);
+  }
+
+  // to check if the given cell is shown on the solution
+  boolean cellSolved(int cell) {
+    return this.grid.isExplored(cell) && this.grid.isSolution(cell);
+  }
+
+  // EFFECT: to count the square of the given level at the given row and column again
+  // from the four squares (or cells) of the level below it
+  void refresh(int k, int row, int col) {
+    int walls = 0;
+    int solved = 0;
+    int rows = k == 1 ? this.grid.rows : this.blockRows(k - 1);
+    int cols = k == 1 ? this.grid.cols : this.blockCols(k - 1);
+    for (int r = 2 * row; r < Math.min(2 * row + 2, rows); r++) {
+      for (int c = 2 * col; c < Math.min(2 * col + 2, cols); c++) {
+        if (k == 1) {
+          walls += this.cellWalls(this.grid.index(r, c));
+          solved += this.cellSolved(this.grid.index(r, c)) ? 1 : 0;
+        }
+        else {
+          walls += this.walls[k - 2][r * cols + c];
+          solved += this.solved[k - 2][r * cols + c];
+        }
+      }
+    }
+    this.walls[k - 1][row * this.blockCols(k) + col] = walls;
+    this.solved[k - 1][row * this.blockCols(k) + col] = solved;
+  }
+
+  // EFFECT: to count the squares of every level that hold the given cell again, after
+  // its walls or colors changed
+  void update(int cell) {
+    int row = cell / this.grid.cols;
+    int col = cell % this.grid.cols;
+    for (int k = 1; k <= this.built; k++) {
+      this.refresh(k, row >> k, col >> k);
+    }
+    if (row >= this.top && row < this.top + this.visibleRows() 
+        && col >= this.left && col < this.left + this.visibleCols()) {
+      this.stale = true;
+    }
+  }
+
+  // to check if the cells are big enough to be drawn with their walls
+  boolean detailed() {
+    return this.cellSize > 1;
+  }
+
+  // to return the number of columns of cells the screen shows, at most those of the maze
+  // zoomed out, the screen is counted in long so a deep level does not overflow it
+  int visibleCols() {
+    long cols = this.detailed() ? (this.width + this.cellSize - 1) / this.cellSize 
+        : (long) this.width << this.level;
+    return (int) Math.min(cols, this.grid.cols);
+  }
+
+  // to return the number of rows of cells the screen shows, at most those of the maze
+  int visibleRows() {
+    long rows = this.detailed() ? (this.height + this.cellSize - 1) / this.cellSize 
+        : (long) this.height << this.level;
+    return (int) Math.min(rows, this.grid.rows);
+  }
+
+  // EFFECT: to show the cells twice as big, keeping the cell in the middle of the
+  // screen there
+  void zoomIn() {
+    int row = this.top + this.visibleRows() / 2;
+    int col = this.left + this.visibleCols() / 2;
+    if (this.level > 0) {
+      this.level--;
+    }
+    else {
+      this.cellSize = Math.min(2 * this.cellSize, MAX_CELL_SIZE);
+    }
+    this.center(row, col);
+  }
+
+  // EFFECT: to show the cells half as big, down to a pixel for the biggest square of
+  // the pyramid, keeping the cell in the middle of the screen there
+  void zoomOut() {
+    int row = this.top + this.visibleRows() / 2;
+    int col = this.left + this.visibleCols() / 2;
+    if (this.detailed()) {
+      this.cellSize = this.cellSize / 2;
+    }
+    else {
+      this.level = Math.min(this.level + 1, this.walls.length);
+    }
+    this.center(row, col);
+  }
+
+  // EFFECT: to move the screen by the given number of quarters of it to the right and
+  // down
+  void pan(int right, int down) {
+    this.left += right * Math.max(1, this.visibleCols() / 4);
+    this.top += down * Math.max(1, this.visibleRows() / 4);
+    this.clamp();
+  }
+
+  // EFFECT: to put the given cell in the middle of the screen
+  void center(int row, int col) {
+    this.left = col - this.visibleCols() / 2;
+    this.top = row - this.visibleRows() / 2;
+    this.clamp();
+  }
+
+  // EFFECT: to keep the screen on the maze, and zoomed out on squares that line up with
+  // the squares of the pyramid
+  void clamp() {
+    this.left = Math.max(0, Math.min(this.left, this.grid.cols - this.visibleCols()));
+    this.top = Math.max(0, Math.min(this.top, this.grid.rows - this.visibleRows()));
+    this.left = this.left >> this.level << this.level;
+    this.top = this.top >> this.level << this.level;
+    this.stale = true;
+  }
+
+  // EFFECT: to paint the screen again if anything on it changed
+  void render() {
+    if (this.stale) {
+      if (this.detailed()) {
+        this.paintCells();
+      }
+      else {
+        this.paintSquares();
+      }
+      this.stale = false;
+    }
+  }
+
+  // EFFECT: to paint every visible cell with its walls, like MazeRaster.paintCell, and
+  // the rest of the screen outside the maze
+  void paintCells() {
+    int size = this.cellSize;
+    for (int y = 0; y < this.height; y++) {
+      for (int x = 0; x < this.width; x++) {
+        if (this.left + x / size >= this.grid.cols || this.top + y / size >= this.grid.rows) {
+          this.image.setPixel(x, y, OUTSIDE);
+        }
+      }
+    }
+    int rows = Math.min(this.visibleRows(), this.grid.rows - this.top);
+    int cols = Math.min(this.visibleCols(), this.grid.cols - this.left);
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < cols; c++) {
+        int cell = this.grid.index(this.top + r, this.left + c);
+        boolean eastWall = this.left + c < this.grid.cols - 1 
+            && this.grid.hasWall(this.grid.eastWall(cell));
+        boolean southWall = this.top + r < this.grid.rows - 1 
+            && this.grid.hasWall(this.grid.southWall(cell));
+        boolean corner = MazeRaster.cornerIsWall(this.grid, cell, eastWall, southWall);
+        Color color = MazeRaster.colorOf(this.grid, this.heat, cell);
+        for (int y = 0; y < size && r * size + y < this.height; y++) {
+          for (int x = 0; x < size && c * size + x < this.width; x++) {
+            boolean wall = (x == size - 1 && (eastWall || (y == size - 1 && corner))) 
+                || (y == size - 1 && southWall);
+            this.image.setPixel(c * size + x, r * size + y, wall ? Color.DARK_GRAY : color);
+          }
+        }
+      }
+    }
+  }
+
+  // EFFECT: to paint every pixel with the color of the square of 2^level cells under
+  // it: red if the solution goes through it, green or red for the start or the goal,
+  // or else darker the more walls it holds
+  void paintSquares() {
+    int k = this.level;
+    this.buildLevels(k);
+    for (int y = 0; y < this.height; y++) {
+      for (int x = 0; x < this.width; x++) {
+        int row = (this.top >> k) + y;
+        int col = (this.left >> k) + x;
+        Color color;
+        if (row >= this.blockRows(k) || col >= this.blockCols(k)) {
+          color = OUTSIDE;
+        }
+        else if (k == 0) {
+          int cell = this.grid.index(row, col);
+          color = MazeRaster.colorOf(this.grid, this.heat, cell);
+          if (color == Color.GRAY) {
+            color = SHADES[this.cellWalls(cell) * (SHADES.length - 1) / 2];
+          }
+        }
+        else if (this.solved[k - 1][row * this.blockCols(k) + col] > 0) {
+          color = Color.RED;
+        }
+        else if (row == 0 && col == 0) {
+          color = Color.GREEN;
+        }
+        else if (row == this.blockRows(k) - 1 && col == this.blockCols(k) - 1) {
+          color = Color.RED;
+        }
+        else {
+          color = SHADES[(int) Math.min(SHADES.length - 1, 
+              (long) this.walls[k - 1][row * this.blockCols(k) + col] * (SHADES.length - 1) 
+              / (2L << (2 * k)))];
+        }
+        this.image.setPixel(x, y, color);
+      }
+    }
+  }
+
+  // EFFECT: to show the same part of the maze at the same zoom as the given viewport
+  void showSameAs(MazeViewport other) {
+    this.cellSize = other.cellSize;
+    this.level = Math.min(other.level, this.walls.length);
+    this.left = other.left;
+    this.top = other.top;
+    this.clamp();
+  }
+
+  // to return the point of the maze drawn 20 pixels a cell, like MazesWorld.drawMaze,
+  // under the given point of the screen, or null if the cells are too small to click
+  Posn toMaze(Posn pos) {
+    if (!this.detailed()) {
+      return null;
+    }
+    return new Posn((this.left * this.cellSize + pos.x) * 20 / this.cellSize, 
+        (this.top * this.cellSize + pos.y) * 20 / this.cellSize);
+  }
+}
+
+// to measure how many bytes the current thread allocates, e.g. for every frame
+class AllocationMeter {
+  com.sun.management.ThreadMXBean threads = 
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  // to return the number of bytes the current thread has allocated so far
+  long allocated() {
+    return this.threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  // to return the average number of bytes allocated by a frame of the given world,
+  // that is a tick and the scene that follows it
+  long perFrame(World world, int frames) {
+    long before = this.allocated();
+    for (int i = 0; i < frames; i++) {
+      world.onTick();
+      world.makeScene();
+    }
+    return (this.allocated() - before) / frames;
+  }
+}
+
+// to represent how far a MazesWorld got generating its maze a slice at a time: the
+// stage it is in, the next item of that stage (a cell or an edge) and the time spent on
+// the stage so far, so every stage can be resumed in the next tick
+class MazeBuild {
+  static final int BOARD = 0;
+  static final int EDGES = 1;
+  static final int CLEAR = 2;
+  static final int REWEIGH = 3;
+  static final int SORT = 4;
+  static final int CARVE = 5;
+  static final int WALLS = 6;
+
+  int stage;
+  int next = 0;
+  int accepted = 0;
+  long stageNanos = 0;
+  // the time the current slice started, or the time the stage started if that is later
+  long sliceStart = System.nanoTime();
+
+  MazeBuild(int stage) {
+    this.stage = stage;
+  }
+
+  // EFFECT: to go on to the given stage from its first item, so the rest of the current
+  // slice counts for the new stage
+  void startStage(int stage) {
+    this.stage = stage;
+    this.next = 0;
+    this.accepted = 0;
+    this.stageNanos = 0;
+    this.sliceStart = System.nanoTime();
+  }
+
+  // to return the time spent on the current stage so far, with the current slice
+  long elapsed() {
+    return this.stageNanos + System.nanoTime() - this.sliceStart;
+  }
+}
+
+// to represent how much of an animation may be shown in one tick: at most cellsPerTick
+// steps, and if nanosPerTick is positive, only as many steps as fit in that time
+class FrameBudget {
+  static final long TIMED = 20000000L;
+
+  int cellsPerTick;
+  long nanosPerTick;
+
+  FrameBudget(int cellsPerTick, long nanosPerTick) {
+    this.cellsPerTick = cellsPerTick;
+    this.nanosPerTick = nanosPerTick;
+  }
+
+  // to check if one more step fits after the given number of steps of a tick that
+  // started at the given time
+  boolean allows(int steps, long started) {
+    return steps < this.cellsPerTick 
+        && (this.nanosPerTick <= 0 || System.nanoTime() - started < this.nanosPerTick);
+  }
+
+  // EFFECT: to double the number of steps in a tick
+  void faster() {
+    if (this.cellsPerTick <= Integer.MAX_VALUE / 2) {
+      this.cellsPerTick = this.cellsPerTick * 2;
+    }
+  }
+
+  // EFFECT: to halve the number of steps in a tick, down to one
+  void slower() {
+    this.cellsPerTick = Math.max(1, this.cellsPerTick / 2);
+  }
+
+  // EFFECT: to switch between a fixed number of steps in a tick and as many steps as
+  // fit in TIMED nanoseconds
+  void toggleTimed() {
+    if (this.nanosPerTick > 0) {
+      this.cellsPerTick = 1;
+      this.nanosPerTick = 0;
+    }
+    else {
+      this.cellsPerTick = Integer.MAX_VALUE;
+      this.nanosPerTick = TIMED;
+    }
+  }
+}
+
+// to record how much work each phase of generating and solving a maze did
+// the generation counters are replaced by every generation and the search counters by
+// every search; a world without metrics does not count anything
+class MazeMetrics {
+  long createEdgesNanos = 0;
+  long sortNanos = 0;
+  long findMinimalPathNanos = 0;
+  long containOnlyWallsNanos = 0;
+  long searchNanos = 0;
+  long edgesCreated = 0;
+  long edgesExamined = 0;
+  long edgesAccepted = 0;
+  long finds = 0;
+  long findDepths = 0;
+  int maxFindDepth = 0;
+  long cellsExpanded = 0;
+  int frontierPeak = 0;
+
+  // EFFECT: to record the time and the number of items of the given phase of the
+  // generation, where accepted is only used by findMinimalPath
+  void record(String phase, long nanos, long items, long accepted) {
+    if (phase.equals("createEdges")) {
+      this.createEdgesNanos = nanos;
+      this.edgesCreated = items;
+    }
+    else if (phase.equals("sort")) {
+      this.sortNanos = nanos;
+    }
+    else if (phase.equals("findMinimalPath")) {
+      this.findMinimalPathNanos = nanos;
+      this.edgesExamined = items;
+      this.edgesAccepted = accepted;
+    }
+    else {
+      this.containOnlyWallsNanos = nanos;
+    }
+  }
+
+  // EFFECT: to record the cost of the given search
+  void recordSearch(SearchResult result) {
+    this.searchNanos = result.elapsedNanos;
+    this.cellsExpanded = result.expanded();
+    this.frontierPeak = result.frontierPeak;
+  }
+
+  // EFFECT: to record the finds counted by the given union-find
+  void recordFinds(UnionFind sets) {
+    this.finds = sets.finds;
+    this.findDepths = sets.findDepths;
+    this.maxFindDepth = sets.maxFindDepth;
+  }
+
+  // to return the average number of links followed by a find
+  double averageFindDepth() {
+    return this.finds == 0 ? 0 : (double) this.findDepths / this.finds;
+  }
+
+  // to return a copy of these metrics that later phases do not change
+  MazeMetrics snapshot() {
+    MazeMetrics copy = new MazeMetrics();
+    copy.createEdgesNanos = this.createEdgesNanos;
+    copy.sortNanos = this.sortNanos;
+    copy.findMinimalPathNanos = this.findMinimalPathNanos;
+    copy.containOnlyWallsNanos = this.containOnlyWallsNanos;
+    copy.searchNanos = this.searchNanos;
+    copy.edgesCreated = this.edgesCreated;
+    copy.edgesExamined = this.edgesExamined;
+    copy.edgesAccepted = this.edgesAccepted;
+    copy.finds = this.finds;
+    copy.findDepths = this.findDepths;
+    copy.maxFindDepth = this.maxFindDepth;
+    copy.cellsExpanded = this.cellsExpanded;
+    copy.frontierPeak = this.frontierPeak;
+    return copy;
+  }
+
+  // to describe these metrics in one line
+  String summary() {
+    return "edges=" + this.edgesCreated + " examined=" + this.edgesExamined 
+        + " accepted=" + this.edgesAccepted 
+        + String.format(" findDepth=%.2f", this.averageFindDepth()) 
+        + " maxFindDepth=" + this.maxFindDepth + " expanded=" + this.cellsExpanded 
+        + " frontierPeak=" + this.frontierPeak;
+  }
+}
+
+// to report one phase of generating or solving a maze to Java Flight Recorder
+// it is only filled in and committed while a recording has the event enabled, e.g.
+// java -XX:StartFlightRecording:filename=mazes.jfr MazeBatch ...
+@Name("mazes.Phase")
+@Label("Maze Phase")
+@Category("Mazes")
+@Description("One phase of generating or solving a maze")
+class MazePhaseEvent extends Event {
+  @Label("Phase")
+  String phase;
+  @Label("Cells")
+  int cells;
+  @Label("Items")
+  @Description("Edges created, sorted, examined or kept, or cells expanded")
+  long items;
+  @Label("Accepted Edges")
+  long accepted;
+  @Label("Average Find Depth")
+  double averageFindDepth;
+  @Label("Max Find Depth")
+  int maxFindDepth;
+  @Label("Frontier Peak")
+  int frontierPeak;
+  @Label("Elapsed")
+  @Timespan(Timespan.NANOSECONDS)
+  long elapsed;
+
+  // the type of this event, asked once whether any recording enables it
+  static final EventType TYPE = EventType.getEventType(MazePhaseEvent.class);
+
+  // to check if a recording has this event enabled
+  static boolean recording() {
+    return TYPE.isEnabled();
+  }
+
+  // EFFECT: to commit an event for the given phase, of the given search key or null, if a
+  // recording has it enabled, taking the find depths from the given union-find if there
+  // is one
+  // the event and the name of its phase are only made once the event type is enabled,
+  // so solving without a recording does not allocate for it
+  static void emit(String phase, String key, int cells, long elapsed, long items, 
+      long accepted, UnionFind sets, int frontierPeak) {
+    if (TYPE.isEnabled()) {
+      MazePhaseEvent event = new MazePhaseEvent();
+      if (event.shouldCommit()) {
+        event.phase = key == null ? phase : phase + " " + key;
+        event.cells = cells;
+        event.elapsed = elapsed;
+        event.items = items;
+        event.accepted = accepted;
+        if (sets != null && sets.finds > 0) {
+          event.averageFindDepth = (double) sets.findDepths / sets.finds;
+          event.maxFindDepth = sets.maxFindDepth;
+        }
+        event.frontierPeak = frontierPeak;
+        event.commit();
+      }
+    }
+  }
+}
+
+// to generate and solve many mazes without any window, one job for every seed of a
+// range, on a bounded pool of threads, writing one line of CSV for every maze as soon
+// as it is done and reporting the throughput at the end
+// e.g. java MazeBatch --rows 100 --cols 100 --seeds 0..9999 --generator kruskal
+//        --solver b --threads 8 --out results.csv
+class MazeBatch {
+  static final String HEADER = "seed,rows,cols,generator,solver,path,expanded,"
+      + "generate_ns,solve_ns";
+  static final String[] GENERATORS = {"kruskal", "shuffle", "boruvka", "eller", 
+    "backtracker", "wilson", "prim"};
+  static final String[] OPTIONS = {"rows", "cols", "seeds", "generator", "solver", 
+    "threads", "out"};
+
+  int rows;
+  int cols;
+  long firstSeed;
+  long lastSeed;
+  String generator;
+  String solver;
+  int threads;
+
+  MazeBatch(int rows, int cols, long firstSeed, long lastSeed, String generator, 
+      String solver, int threads) {
+    if (!Arrays.asList(GENERATORS).contains(generator)) {
+      throw new IllegalArgumentException("Unknown generator: " + generator);
+    }
+    if (!Arrays.asList("b", "d", "a", "m").contains(solver)) {
+      throw new IllegalArgumentException("Unknown solver: " + solver);
+    }
+    this.rows = rows;
+    this.cols = cols;
+    this.firstSeed = firstSeed;
+    this.lastSeed = lastSeed;
+    this.generator = generator;
+    this.solver = solver;
+    this.threads = threads;
+  }
+
+  // to run the batch described by the given command line arguments
+  public static void main(String[] args) throws IOException, InterruptedException {
+    HashMap<String, String> options = MazeBatch.options(args);
+    String[] seeds = options.getOrDefault("seeds", "0..99").split("\\.\\.");
+    MazeBatch batch = new MazeBatch(
+        Integer.parseInt(options.getOrDefault("rows", "100")),
+        Integer.parseInt(options.getOrDefault("cols", "100")),
+        Long.parseLong(seeds[0]), Long.parseLong(seeds[seeds.length - 1]),
+        options.getOrDefault("generator", "kruskal"),
+        options.getOrDefault("solver", "b"),
+        Integer.parseInt(options.getOrDefault("threads", 
+            Integer.toString(Runtime.getRuntime().availableProcessors()))));
+    try (Writer out = Files.newBufferedWriter(Paths.get(options.getOrDefault("out", 
+        "results.csv")))) {
+      long start = System.nanoTime();
+      long mazes = batch.run(out);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf("%d mazes in %.2f s: %.1f mazes/s%n", mazes, seconds, mazes / seconds);
+    }
+  }
+
+  // to return the values of the given command line arguments by their option names,
+  // which must be OPTIONS, each followed by a value
+  static HashMap<String, String> options(String[] args) {
+    return MazeBatch.options(args, OPTIONS);
+  }
+
+  // to return the values of the given command line arguments by their option names,
+  // which must be among the given names, each followed by a value
+  static HashMap<String, String> options(String[] args, String[] names) {
+    HashMap<String, String> options = new HashMap<String, String>();
+    for (int i = 0; i < args.length; i += 2) {
+      if (!args[i].startsWith("--")) {
+        throw new IllegalArgumentException("Expected an option instead of " + args[i]);
+      }
+      if (!Arrays.asList(names).contains(args[i].substring(2))) {
+        throw new IllegalArgumentException("Unknown option: " + args[i]);
+      }
+      if (i + 1 == args.length) {
+        throw new IllegalArgumentException("Missing a value for " + args[i]);
+      }
+      options.put(args[i].substring(2), args[i + 1]);
+    }
+    return options;
+  }
+
+  // to generate the maze of the given seed with the generator of this batch
+  MazeGrid generate(long seed) {
+    return MazeBatch.generate(this.generator, this.rows, this.cols, seed);
+  }
+
+  // to generate the maze of the given size and seed with the generator of the given name
+  // Boruvka takes the seed itself, as it did before MazeGenerator, so the same seeds
+  // still give the same mazes in earlier results and caches
+  static MazeGrid generate(String generator, int rows, int cols, long seed) {
+    if (generator.equals("boruvka")) {
+      return new BoruvkaGenerator(1).generate(rows, cols, seed);
+    }
+    return MazeBatch.generator(generator).generate(rows, cols, new Random(seed));
+  }
+
+  // to return the generator of the given name, one of GENERATORS
+  // Boruvka runs on one thread here, as the callers already keep every core busy
+  static MazeGenerator generator(String name) {
+    if (name.equals("kruskal")) {
+      return new KruskalGenerator();
+    }
+    else if (name.equals("shuffle")) {
+      return new KruskalGenerator(new ShuffleOrdering());
+    }
+    else if (name.equals("boruvka")) {
+      return new BoruvkaGenerator(1);
+    }
+    else if (name.equals("eller")) {
+      return new EllerGenerator();
+    }
+    else if (name.equals("backtracker")) {
+      return new BacktrackerGenerator();
+    }
+    else if (name.equals("wilson")) {
+      return new WilsonGenerator();
+    }
+    else if (name.equals("prim")) {
+      return new PrimGenerator();
+    }
+    else {
+      throw new IllegalArgumentException("Unknown generator: " + name);
+    }
+  }
+
+  // to generate and solve the maze of the given seed, from the top-left to the
+  // bottom-right cell, and describe it as one line of CSV
+  String runJob(long seed) {
+    long start = System.nanoTime();
+    MazeGrid grid = this.generate(seed);
+    long generated = System.nanoTime() - start;
+    SearchResult result = new GridSearch(grid).solve(this.solver, 0, grid.cells() - 1);
+    return seed + "," + this.rows + "," + this.cols + "," + this.generator + "," 
+        + this.solver + "," + result.pathLength() + "," + result.expanded() + "," 
+        + generated + "," + result.elapsedNanos;
+  }
+
+  // EFFECT: to run every job of this batch and write its line to the given output in
+  // the order the jobs finish, keeping at most a few jobs per thread in flight
+  // returns the number of mazes done
+  long run(Writer out) throws IOException, InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+    CompletionService<String> jobs = new ExecutorCompletionService<String>(pool);
+    long inFlight = 0;
+    long done = 0;
+    long next = this.firstSeed;
+    try {
+      out.write(HEADER + "\n");
+      while (next <= this.lastSeed || inFlight > 0) {
+        if (next <= this.lastSeed && inFlight < 4L * this.threads) {
+          long seed = next;
+          jobs.submit(() -> this.runJob(seed));
+          next++;
+          inFlight++;
+        }
+        else {
+          out.write(jobs.take().get() + "\n");
+          inFlight--;
+          done++;
+        }
+      }
+      out.flush();
+    }
+    catch (ExecutionException e) {
+      throw new RuntimeException("A maze of the batch failed", e.getCause());
+    }
+    finally {
+      pool.shutdownNow();
+    }
+    return done;
+  }
+}
+
+// to represent a maze kept by a MazeCache: only its wall bits, which are never changed,
+// and the paths found in it so far keyed by solver, start and goal
+class CachedMaze {
+  int rows;
+  int cols;
+  long[] walls;
+  HashMap<String, int[]> paths = new HashMap<String, int[]>();
+  long bytes;
+
+  CachedMaze(MazeGrid grid) {
+    this.rows = grid.rows;
+    this.cols = grid.cols;
+    this.walls = grid.walls;
+    this.bytes = MazeCache.ENTRY_BYTES + 8L * this.walls.length;
+  }
+
+  // to return a new grid with a copy of the walls of this maze, that the caller may
+  // change: one bulk copy of the wall bits, two for every cell
+  MazeGrid copy() {
+    return new MazeGrid(this.rows, this.cols, Arrays.copyOf(this.walls, this.walls.length));
+  }
+
+  // to return a grid over the walls of this maze themselves, only for reading them
+  MazeGrid view() {
+    return new MazeGrid(this.rows, this.cols, this.walls);
+  }
+}
+
+// to keep the mazes generated most recently, and the paths found in them, while they
+// fit in the given number of bytes, evicting the least recently used mazes first
+// the mazes are generated and solved outside of the lock, so a miss does not hold up
+// the hits of other threads; if two threads miss the same maze the first one is kept
+// every caller of maze gets its own copy of the walls, so no caller can change the maze
+// of another, and solve searches the cached walls themselves without copying them
+class MazeCache {
+  static final long ENTRY_BYTES = 64;
+
+  long maxBytes;
+  long bytes = 0;
+  long hits = 0;
+  long misses = 0;
+  LinkedHashMap<String, CachedMaze> mazes = 
+      new LinkedHashMap<String, CachedMaze>(16, 0.75f, true);
+
+  MazeCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  // to return the key of the maze of the given size, seed and generator
+  static String key(int rows, int cols, long seed, String generator) {
+    return rows + "x" + cols + ":" + seed + ":" + generator;
+  }
+
+  // to return the maze of the given size, seed and generator (see MazeBatch.generate),
+  // generating it only if it is not cached, as a new grid the caller may change
+  MazeGrid maze(int rows, int cols, long seed, String generator) {
+    return this.entry(MazeCache.key(rows, cols, seed, generator), rows, cols, seed, 
+        generator, true).copy();
+  }
+
+  // to return the path from the given cell to the given cell found by the given solver
+  // (see GridSearch.solve) in the maze of the given size, seed and generator, going
+  // from the goal back to the start, searching only if it is not cached
+  // it counts as one hit if the path is cached and as one miss if it is not
+  int[] solve(int rows, int cols, long seed, String generator, String solver, int from, 
+      int to) {
+    String key = MazeCache.key(rows, cols, seed, generator);
+    String pathKey = solver + ":" + from + ":" + to;
+    CachedMaze maze = this.entry(key, rows, cols, seed, generator, false);
+    int[] path = this.lookupPath(maze, pathKey);
+    if (path == null) {
+      path = new GridSearch(maze.view()).solve(solver, from, to).path;
+      this.storePath(key, maze, pathKey, path);
+    }
+    return Arrays.copyOf(path, path.length);
+  }
+
+  // to return the maze cached under the given key, of the given size, seed and
+  // generator, generating and caching it if it is not there, and counting the hit or
+  // miss if asked to
+  CachedMaze entry(String key, int rows, int cols, long seed, String generator, 
+      boolean counted) {
+    CachedMaze maze = this.lookup(key, counted);
+    if (maze == null) {
+      maze = this.store(key, new CachedMaze(MazeBatch.generate(generator, rows, cols, 
+          seed)));
+    }
+    return maze;
+  }
+
+  // to return the maze cached under the given key, or null, counting the hit or miss
+  // if asked to
+  synchronized CachedMaze lookup(String key, boolean counted) {
+    CachedMaze maze = this.mazes.get(key);
+    if (counted && maze == null) {
+      this.misses++;
+    }
+    else if (counted) {
+      this.hits++;
+    }
+    return maze;
+  }
+
+  // EFFECT: to cache the given maze under the given key, unless another thread did it
+  // first, and evict the least recently used mazes until the cache fits again
+  // returns the maze that is cached under the key
+  synchronized CachedMaze store(String key, CachedMaze maze) {
+    CachedMaze cached = this.mazes.putIfAbsent(key, maze);
+    if (cached != null) {
+      return cached;
+    }
+    this.bytes += maze.bytes;
+    this.evict();
+    return maze;
+  }
+
+  // to return the path cached in the given maze under the given key, or null, counting
+  // the hit or miss
+  synchronized int[] lookupPath(CachedMaze maze, String pathKey) {
+    int[] path = maze.paths.get(pathKey);
+    if (path == null) {
+      this.misses++;
+    }
+    else {
+      this.hits++;
+    }
+    return path;
+  }
+
+  // EFFECT: to cache the given path in the given maze, if it is still cached under the
+  // given key, and evict the least recently used mazes until the cache fits again
+  synchronized void storePath(String key, CachedMaze maze, String pathKey, int[] path) {
+    if (this.mazes.get(key) == maze && !maze.paths.containsKey(pathKey)) {
+      long size = ENTRY_BYTES + 4L * path.length;
+      maze.paths.put(pathKey, path);
+      maze.bytes += size;
+      this.bytes += size;
+      this.evict();
+    }
+  }
+
+  // EFFECT: to remove the least recently used mazes until the cache fits in its bytes
+  void evict() {
+    Iterator<CachedMaze> oldest = this.mazes.values().iterator();
+    while (this.bytes > this.maxBytes && oldest.hasNext()) {
+      this.bytes -= oldest.next().bytes;
+      oldest.remove();
+    }
+  }
+}
+
+// to benchmark the phases of MazesWorld without opening a window, in the spirit of JMH:
+// every phase is timed on its own on a fresh world prepared up to that phase, after
+// some warm-up runs, for every size and seed, reporting the average time and the bytes
+// allocated for one run (like the gc.alloc.rate.norm of the JMH gc profiler) and the
+// allocation rate
+// e.g. java -Xmx8g MazeBenchmark --sizes 10,100,500,2000 --seeds 1,2,3
+//        --phases search,makeScene --warmup 3 --iterations 5
+class MazeBenchmark {
+  static final String[] PHASES = {"createEdges", "sort", "findMinimalPath", 
+    "containOnlyWalls", "search", "makeScene"};
+  static final String[] OPTIONS = {"sizes", "seeds", "phases", "warmup", "iterations"};
+
+  int warmup;
+  int iterations;
+  AllocationMeter meter = new AllocationMeter();
+
+  MazeBenchmark(int warmup, int iterations) {
+    this.warmup = warmup;
+    this.iterations = iterations;
+  }
+
+  // to run the benchmarks described by the given command line arguments
+  public static void main(String[] args) {
+    HashMap<String, String> options = MazeBatch.options(args, OPTIONS);
+    MazeBenchmark benchmark = new MazeBenchmark(
+        Integer.parseInt(options.getOrDefault("warmup", "3")),
+        Integer.parseInt(options.getOrDefault("iterations", "5")));
+    System.out.printf("%-18s %6s %6s %14s %14s %12s%n", 
+        "phase", "size", "seed", "ms/op", "bytes/op", "MB/s");
+    for (String phase : options.getOrDefault("phases", String.join(",", PHASES)).split(",")) {
+      for (String size : options.getOrDefault("sizes", "10,100,500,1000,2000").split(",")) {
+        for (String seed : options.getOrDefault("seeds", "1,2,3").split(",")) {
+          double[] result = benchmark.measure(phase, Integer.parseInt(size), 
+              Integer.parseInt(seed));
+          System.out.printf("%-18s %6s %6s %14.3f %14.0f %12.1f%n", phase, size, seed, 
+              result[0] / 1e6, result[1], result[1] / result[0] * 1e3);
+        }
+      }
+    }
+  }
+
+  // to return the average nanoseconds and allocated bytes of one run of the given phase
+  // on a square maze of the given size and seed
+  double[] measure(String phase, int size, int seed) {
+    for (int i = 0; i < this.warmup; i++) {
+      this.runPhase(phase, this.prepare(phase, size, seed));
+    }
+    long nanos = 0;
+    long bytes = 0;
+    for (int i = 0; i < this.iterations; i++) {
+      MazesWorld world = this.prepare(phase, size, seed);
+      long allocated = this.meter.allocated();
+      long start = System.nanoTime();
+      this.runPhase(phase, world);
+      nanos += System.nanoTime() - start;
+      bytes += this.meter.allocated() - allocated;
+    }
+    return new double[] {(double) nanos / this.iterations, (double) bytes / this.iterations};
+  }
+
+  // to build a world of the given size and seed with every phase before the given one done
+  // the union-find is set up here, outside of every timed phase
+  MazesWorld prepare(String phase, int size, int seed) {
+    int last = Arrays.asList(PHASES).indexOf(phase);
+    if (last == -1) {
+      throw new IllegalArgumentException("Unknown phase: " + phase);
+    }
+    MazesWorld world = new MazesWorld(size, size, seed);
+    world.initRepresentatives();
+    for (int i = 0; i < last; i++) {
+      this.runPhase(PHASES[i], world);
+    }
+    return world;
+  }
+
+  // EFFECT: to run the given phase on the given world
+  void runPhase(String phase, MazesWorld world) {
+    if (phase.equals("createEdges")) {
+      world.createEdges();
+    }
+    else if (phase.equals("sort")) {
+      world.sortEdges();
+    }
+    else if (phase.equals("findMinimalPath")) {
+      world.findMinimalPath();
+    }
+    else if (phase.equals("containOnlyWalls")) {
+      world.containOnlyWalls();
+    }
+    else if (phase.equals("search")) {
+      world.search("b");
+    }
     else {
-      image = new LineImage(new Posn(20,0), Color.DARK_GRAY);
+      world.scene = null;
+      world.makeScene();
     }
-    return image;
   }
 }
 
 // to represent the Mazes World
 class MazesWorld extends World {
+  static final WorldImage START = new RectangleImage(20, 20, OutlineMode.SOLID, Color.GREEN);
+  // the goal and the cells of the solution
+  static final WorldImage SOLUTION = new RectangleImage(20, 20, OutlineMode.SOLID, Color.RED);
+  // the most pixels the window is wide or high, the viewport shows the rest
+  static final int SCREEN = 800;
+  // the cells or edges a progressive build handles between two looks at the clock
+  static final int BUILD_SLICE = 1024;
+
   int col;
   int row;
   ArrayList<ArrayList<Cell>> board = new ArrayList<ArrayList<Cell>>();
   ArrayList<Edge> worklist = new ArrayList<Edge>();
   Random rand = new Random();
-  HashMap<Cell, Cell> representatives = new HashMap<Cell, Cell>();
+  UnionFind representatives = new UnionFind(0);
   ArrayList<Edge> minimalPath = new ArrayList<Edge>();
   int count = -1;
   ArrayList<Cell> alreadySeen = new ArrayList<Cell>();
-  ArrayList<Cell> worklistSearch = new ArrayList<Cell>();
   ArrayList<Cell> path = new ArrayList<Cell>();
-  HashMap<Cell, Cell> cameFromEdge = new HashMap<Cell, Cell>();
+  int[] cameFrom = new int[0];
+  SearchResult lastSearch;
+  WorldScene scene;
+  // the images drawCell placed over the scene since it was last drawn in full
+  int overlays = 0;
+  IntDeque dirty = new IntDeque(64);
+  boolean rasterMode = false;
+  MazeRaster raster;
+  FrameBudget budget = new FrameBudget(1, 0);
+  MazeGrid grid;
+  EdgeOrdering ordering = new BucketOrdering();
+  // null for Kruskal's algorithm on the board's own edges
+  MazeGenerator generator;
+  MazeTree tree;
+  DistanceField distances;
+  JunctionGraph junctions;
+  PathRepair repair;
+  // walls were edited since worklist and minimalPath were last sorted out
+  boolean edgesEdited = false;
+  boolean heatmap = false;
+  boolean viewportMode = false;
+  MazeViewport viewport;
+  // the generation still going on in onTick, or null once the maze is done
+  MazeBuild build;
+  // the time a tick may spend on generating, or 0 to generate all at once
+  long sliceNanos = 0;
+  // counted only when asked for, e.g. java -Dmazes.metrics=true ...
+  MazeMetrics metrics = Boolean.getBoolean("mazes.metrics") ? new MazeMetrics() : null;
 
   MazesWorld(int col, int row) {
+    this(col, row, new BucketOrdering());
+  }
+
+  MazesWorld(int col, int row, EdgeOrdering ordering) {
+    this(col, row, ordering, new Random());
+  }
+
+  // to generate the same maze every time for the same random numbers, e.g. new Random(7)
+  // gives the maze of new KruskalGenerator().generate(row, col, new Random(7))
+  MazesWorld(int col, int row, EdgeOrdering ordering, Random rand) {
     this.col = col;
     this.row = row;
+    this.ordering = ordering;
+    this.rand = rand;
+    this.viewportMode = this.tooBig();
     this.board = this.createBoard();
     this.createEdges();
-    this.initHashMap();
-    Collections.sort(this.worklist);
+    this.initRepresentatives();
+    this.sortEdges();
     this.findMinimalPath();
     this.containOnlyWalls();
   }
 
+  // to generate the mazes of this world with the given generator, which for the same
+  // random numbers gives the same maze as generator.generate(row, col, rand)
+  MazesWorld(int col, int row, MazeGenerator generator, Random rand) {
+    this.col = col;
+    this.row = row;
+    this.generator = generator;
+    this.rand = rand;
+    this.viewportMode = this.tooBig();
+    this.grid = generator.generate(row, col, rand);
+    this.board = this.createBoard();
+    this.edgesFromGrid();
+  }
+
+  // to generate the maze of new MazesWorld(col, row, new BucketOrdering(), rand) a slice
+  // of at most the given time in every tick instead, also when pressing "n", so the
+  // first frame shows right away and the passages appear as they are carved
+  // the board is not there until its stage is done, so the maze is shown through the
+  // viewport while it is built, and keys other than the viewport's wait for the end
+  MazesWorld(int col, int row, Random rand, long sliceNanos) {
+    this.col = col;
+    this.row = row;
+    this.rand = rand;
+    this.sliceNanos = sliceNanos;
+    this.grid = new MazeGrid(row, col);
+    this.viewportMode = this.tooBig();
+    this.build = new MazeBuild(MazeBuild.BOARD);
+  }
+
+  // to set up a seeded world with only its board, for building the maze step by step
   MazesWorld(int col, int row, int seed) {
     this.col = col;
     this.row = row;
     this.rand = new Random(seed);
+    this.viewportMode = this.tooBig();
+    this.board = this.createBoard();
+    this.grid = new MazeGrid(row, col);
+  }
+
+  // to show a maze that was generated compactly, e.g. by the KruskalGenerator
+  MazesWorld(MazeGrid grid) {
+    this.col = grid.cols;
+    this.row = grid.rows;
+    this.grid = grid;
+    this.viewportMode = this.tooBig();
     this.board = this.createBoard();
+    this.edgesFromGrid();
+  }
+
+  // to check if the maze is too big to draw whole at 20 pixels a cell, so that it starts
+  // out shown through the viewport
+  boolean tooBig() {
+    return this.col * 20 > SCREEN || this.row * 20 > SCREEN;
   }
 
   // to create the two-dimensional grid using the given number of rows and columns
@@ -147,89 +4007,204 @@ class MazesWorld extends World {
   // EFFECT: to create the edges between the cells inside the board, add the edges to worklist 
   // and add the edges to related cells
   void createEdges() {
-    Edge edge;
+    long start = System.nanoTime();
+    int created = this.worklist.size();
     for (int i = 0; i < this.row - 1; i++) {
       for (int j = 0; j < this.col; j++) {
-        edge = new Edge(this.board.get(i).get(j), 
-            this.board.get(i + 1).get(j), this.rand.nextInt(100), false);
-        this.worklist.add(edge);
-        this.board.get(i).get(j).addToEdges(edge);
-        this.board.get(i + 1).get(j).addToEdges(edge);
+        this.addEdge(this.board.get(i).get(j), this.board.get(i + 1).get(j));
       }
     }
 
     for (int i = 0; i < this.row; i++) {
       for (int j = 0; j < this.col - 1; j++) {
-        edge = new Edge(this.board.get(i).get(j), 
-            this.board.get(i).get(j + 1), this.rand.nextInt(100), false);
-        this.worklist.add(edge);
-        this.board.get(i).get(j).addToEdges(edge);
-        this.board.get(i).get(j + 1).addToEdges(edge);
+        this.addEdge(this.board.get(i).get(j), this.board.get(i).get(j + 1));
       }
     } 
+    this.endPhase("createEdges", System.nanoTime() - start, this.worklist.size() - created, 0);
   }
 
-  // EFFECT: initialize every cell's representative to itself
-  void initHashMap() {
-    for (ArrayList<Cell> row : this.board) {
-      for (Cell cell : row) {
-        this.representatives.put(cell, cell);
-      }
+  // EFFECT: to create the edge between the two given cells with a random weight, if the
+  // ordering reads it, add it to worklist and to the two cells
+  void addEdge(Cell first, Cell second) {
+    Edge edge = new Edge(first, second, this.ordering.weighted() ? this.rand.nextInt(100) : 0, 
+        false);
+    this.worklist.add(edge);
+    first.addToEdges(edge);
+    second.addToEdges(edge);
+  }
+
+  // to return the number of edges of the board
+  int edgeCount() {
+    return (this.row - 1) * this.col + this.row * (this.col - 1);
+  }
+
+  // to return the first cell of the edge with the given number, counting the edges in
+  // the order of createEdges: the vertical ones first, then the horizontal ones
+  Cell edgeFirst(int edge) {
+    int vertical = (this.row - 1) * this.col;
+    if (edge < vertical) {
+      return this.board.get(edge / this.col).get(edge % this.col);
+    }
+    else {
+      return this.board.get((edge - vertical) / (this.col - 1))
+          .get((edge - vertical) % (this.col - 1));
     }
   }
 
-  // to find the representative of the given cell in the HashMap
-  Cell find(Cell c) {
-    if (this.representatives.get(c).equals(c)) {
-      return c;
+  // to return the second cell of the edge with the given number
+  Cell edgeSecond(int edge) {
+    Cell first = this.edgeFirst(edge);
+    if (edge < (this.row - 1) * this.col) {
+      return this.board.get(first.row + 1).get(first.col);
     }
     else {
-      return this.find(this.representatives.get(c));
+      return this.board.get(first.row).get(first.col + 1);
     }
   }
 
-  // to check if the HashMap has more than one representative
-  boolean moreThanOneRepre() {
-    Cell representative = this.find(this.board.get(0).get(0));
-    boolean result = true;
-    for (ArrayList<Cell> row : this.board) {
-      for (Cell cell : row) {
-        result = result && representative.equals(this.find(cell));
+  // EFFECT: initialize every cell's representative to itself
+  void initRepresentatives() {
+    if (this.representatives.parents.length == this.row * this.col) {
+      this.representatives.reset();
+    }
+    else {
+      this.representatives = new UnionFind(this.row * this.col);
+    }
+    this.representatives.counting = this.metrics != null || MazePhaseEvent.recording();
+  }
+
+  // EFFECT: to sort the worklist with the ordering of this world
+  void sortEdges() {
+    long start = System.nanoTime();
+    this.ordering.sort(this.worklist, this.rand);
+    this.endPhase("sort", System.nanoTime() - start, this.worklist.size(), 0);
+  }
+
+  // EFFECT: to record the given phase, which took the given time, in the metrics of this
+  // world and in the flight recorder, if they are on
+  void endPhase(String phase, long nanos, long items, long accepted) {
+    if (this.metrics != null) {
+      this.metrics.record(phase, nanos, items, accepted);
+      if (phase.equals("findMinimalPath")) {
+        this.metrics.recordFinds(this.representatives);
       }
     }
-    return !result;
+    MazePhaseEvent.emit(phase, null, this.row * this.col, nanos, items, accepted, 
+        phase.equals("findMinimalPath") ? this.representatives : null, 0);
   }
 
-  // EFFECT: to connect one representative to the other representative
-  void union(Cell repre1, Cell repre2) {
-    this.representatives.put(repre2, this.representatives.get(repre1));
+  // to return the index of the given cell in the union-find arrays
+  int cellIndex(Cell c) {
+    return c.row * this.col + c.col;
   }
 
   // EFFECT: to find the minimal path of all the cells in the board
+  // stops as soon as the cells - 1 edges of the spanning tree have been accepted
   void findMinimalPath() {
+    long start = System.nanoTime();
+    int needed = this.row * this.col - 1;
+    int accepted = 0;
     int idx = 0;
-    while (this.moreThanOneRepre()) {
+    while (accepted < needed && idx < this.worklist.size()) {
       Edge edge = this.worklist.get(idx);
-      Cell repre1 = this.find(edge.getFirst());
-      Cell repre2 = this.find(edge.getSecond());
-      if (!repre1.equals(repre2)) {
+      if (this.representatives.union(this.cellIndex(edge.getFirst()), 
+          this.cellIndex(edge.getSecond()))) {
+        edge.valid = true;
         this.minimalPath.add(edge);
-        this.union(repre1, repre2);
+        accepted++;
       }
       idx++;
     }
+    this.endPhase("findMinimalPath", System.nanoTime() - start, idx, accepted);
   }
 
   // EFFECT: to remove the edges inside the minimalPath from worklist to only keep the walls
+  // and to rebuild the grid from the finished maze, in place when it has the same size
+  // the edges of the minimalPath are the valid ones, so this takes a single pass
   void containOnlyWalls() {
-    for (Edge e : this.minimalPath) {
-      this.worklist.remove(e);
+    long start = System.nanoTime();
+    int walls = 0;
+    for (int i = 0; i < this.worklist.size(); i++) {
+      Edge e = this.worklist.get(i);
+      if (!e.valid) {
+        this.worklist.set(walls, e);
+        walls++;
+      }
+    }
+    while (this.worklist.size() > walls) {
+      this.worklist.remove(this.worklist.size() - 1);
+    }
+    if (this.grid == null || this.grid.rows != this.row || this.grid.cols != this.col) {
+      this.grid = this.toGrid();
+    }
+    else {
+      this.grid.reset();
+      this.carve(this.grid);
+    }
+    this.tree = null;
+    this.distances = null;
+    this.junctions = null;
+    this.repair = null;
+    this.edgesEdited = false;
+    this.endPhase("containOnlyWalls", System.nanoTime() - start, walls, 0);
+  }
+
+  // to build the compact grid of this maze, where every edge in minimalPath is a passage
+  MazeGrid toGrid() {
+    MazeGrid grid = new MazeGrid(this.row, this.col);
+    this.carve(grid);
+    return grid;
+  }
+
+  // EFFECT: to remove the wall of every edge in minimalPath from the given grid
+  void carve(MazeGrid grid) {
+    for (int i = 0; i < this.minimalPath.size(); i++) {
+      Edge e = this.minimalPath.get(i);
+      grid.removeWall(grid.wallBetween(this.cellIndex(e.getFirst()), 
+          this.cellIndex(e.getSecond())));
+    }
+  }
+
+  // EFFECT: to create the edges between the cells inside the board from the grid,
+  // in the same order as createEdges, putting the walls in worklist and the passages
+  // in minimalPath
+  void edgesFromGrid() {
+    for (int i = 0; i < this.row - 1; i++) {
+      for (int j = 0; j < this.col; j++) {
+        this.addGridEdge(this.board.get(i).get(j), this.board.get(i + 1).get(j));
+      }
+    }
+
+    for (int i = 0; i < this.row; i++) {
+      for (int j = 0; j < this.col - 1; j++) {
+        this.addGridEdge(this.board.get(i).get(j), this.board.get(i).get(j + 1));
+      }
+    }
+  }
+
+  // EFFECT: to add the edge between the two given cells to the cells and to either
+  // minimalPath or worklist depending on the grid
+  void addGridEdge(Cell first, Cell second) {
+    boolean passage = this.grid.connected(this.cellIndex(first), this.cellIndex(second));
+    Edge edge = new Edge(first, second, 0, passage);
+    if (passage) {
+      this.minimalPath.add(edge);
     }
+    else {
+      this.worklist.add(edge);
+    }
+    first.addToEdges(edge);
+    second.addToEdges(edge);
   }
 
   // EFFECT: handle the key event
   public void onKeyEvent(String key) {
-    if (key.equals("b")) {
+    if (this.build != null) {
+      if (this.viewport != null) {
+        this.moveViewport(key);
+      }
+    }
+    else if (key.equals("b")) {
       this.count = 0;
       this.search(key);
     }
@@ -237,100 +4212,632 @@ class MazesWorld extends World {
       this.count = 0;
       this.search(key);
     }
+    else if (key.equals("a") || key.equals("m") || key.equals("p") || key.equals("j")) {
+      this.count = 0;
+      this.search(key);
+    }
+    else if (key.equals("n") && this.sliceNanos > 0 && this.generator == null) {
+      this.startRegeneration();
+    }
     else if (key.equals("n")) {
-      this.board = this.createBoard();
-      this.createEdges();
-      this.initHashMap();
-      Collections.sort(this.worklist);
-      this.findMinimalPath();
+      this.regenerate();
+    }
+    else if (key.equals("r")) {
+      this.rasterMode = !this.rasterMode;
+      this.scene = null;
+    }
+    else if (key.equals("h")) {
+      this.heatmap = !this.heatmap;
+      this.scene = null;
+    }
+    else if (key.equals("f")) {
+      this.budget.faster();
+    }
+    else if (key.equals("s")) {
+      this.budget.slower();
+    }
+    else if (key.equals("t")) {
+      this.budget.toggleTimed();
+    }
+    else if (key.equals("e")) {
+      this.skipToEnd();
+    }
+    else if (key.equals("v")) {
+      this.viewportMode = !this.viewportMode;
+      this.scene = null;
+    }
+    else if (this.viewportMode && this.viewport != null) {
+      this.moveViewport(key);
+    }
+  }
+
+  // EFFECT: to forget the maze and its search and start generating a new one on the same
+  // board a slice at a time, like regenerate: the cells lose their colors and the edges
+  // get new weights in their own stages before the sort and the carving
+  void startRegeneration() {
+    this.worklist.clear();
+    this.minimalPath.clear();
+    this.count = -1;
+    this.alreadySeen.clear();
+    this.path.clear();
+    this.cameFrom = new int[0];
+    this.lastSearch = null;
+    this.dirty.clear();
+    this.grid.reset();
+    this.tree = null;
+    this.distances = null;
+    this.junctions = null;
+    this.repair = null;
+    this.edgesEdited = false;
+    this.build = new MazeBuild(MazeBuild.CLEAR);
+    this.scene = null;
+  }
+
+  // EFFECT: to go on generating the maze for about sliceNanos, a slice of BUILD_SLICE
+  // items at a time and at least one slice
+  void advanceBuild() {
+    long start = System.nanoTime();
+    do {
+      MazeBuild build = this.build;
+      build.sliceStart = System.nanoTime();
+      this.buildSlice(build);
+      build.stageNanos += System.nanoTime() - build.sliceStart;
+    } while (this.build != null && System.nanoTime() - start < this.sliceNanos);
+  }
+
+  // EFFECT: to do the next slice of the stage of the given build, going on to the next
+  // stage when it is done; after the last one the maze is finished and drawn again
+  // the stages do the same as the constructor and regenerate, in the same order, so the
+  // maze is the same as theirs for the same random numbers
+  void buildSlice(MazeBuild build) {
+    int cells = this.row * this.col;
+    int end;
+    if (build.stage == MazeBuild.BOARD) {
+      end = Math.min(build.next + BUILD_SLICE, cells);
+      while (build.next < end) {
+        if (build.next % this.col == 0) {
+          this.board.add(new ArrayList<Cell>(this.col));
+        }
+        this.board.get(build.next / this.col).add(
+            new Cell(build.next / this.col, build.next % this.col, new ArrayList<Edge>()));
+        build.next++;
+      }
+      if (build.next == cells) {
+        build.startStage(MazeBuild.EDGES);
+      }
+    }
+    else if (build.stage == MazeBuild.EDGES) {
+      end = Math.min(build.next + BUILD_SLICE, this.edgeCount());
+      while (build.next < end) {
+        this.addEdge(this.edgeFirst(build.next), this.edgeSecond(build.next));
+        build.next++;
+      }
+      if (build.next == this.edgeCount()) {
+        this.endPhase("createEdges", build.elapsed(), build.next, 0);
+        build.startStage(MazeBuild.SORT);
+      }
+    }
+    else if (build.stage == MazeBuild.CLEAR) {
+      end = Math.min(build.next + BUILD_SLICE, cells);
+      while (build.next < end) {
+        this.cellAt(build.next).colorExploration = false;
+        this.cellAt(build.next).colorSolution = false;
+        build.next++;
+      }
+      if (build.next == cells) {
+        build.startStage(MazeBuild.REWEIGH);
+      }
+    }
+    else if (build.stage == MazeBuild.REWEIGH) {
+      end = Math.min(build.next + BUILD_SLICE, this.edgeCount());
+      while (build.next < end) {
+        this.reuseEdge(this.edgeFirst(build.next), this.edgeSecond(build.next), null);
+        build.next++;
+      }
+      if (build.next == this.edgeCount()) {
+        build.startStage(MazeBuild.SORT);
+      }
+    }
+    else if (build.stage == MazeBuild.SORT) {
+      this.initRepresentatives();
+      this.sortEdges();
+      build.startStage(MazeBuild.CARVE);
+    }
+    else if (build.stage == MazeBuild.CARVE) {
+      end = Math.min(build.next + BUILD_SLICE, this.worklist.size());
+      while (build.next < end && build.accepted < cells - 1) {
+        Edge edge = this.worklist.get(build.next);
+        int first = this.cellIndex(edge.getFirst());
+        int second = this.cellIndex(edge.getSecond());
+        if (this.representatives.union(first, second)) {
+          edge.valid = true;
+          this.minimalPath.add(edge);
+          build.accepted++;
+          this.grid.removeWall(this.grid.wallBetween(first, second));
+          this.dirtyAroundWall(Math.min(first, second));
+        }
+        build.next++;
+      }
+      if (build.next == this.worklist.size() || build.accepted == cells - 1) {
+        this.endPhase("findMinimalPath", build.elapsed(), build.next, build.accepted);
+        build.startStage(MazeBuild.WALLS);
+      }
+    }
+    else {
       this.containOnlyWalls();
+      this.build = null;
+      this.scene = null;
     }
   }
 
-  // EFFECT: to do the dfs search or bfs search
-  void search(String key) {
-    Cell from = this.board.get(0).get(0);
-    Cell to = this.board.get(this.row - 1).get(this.col - 1);
-    this.worklistSearch.add(from);
+  // EFFECT: to queue the cells to paint again after the wall of the given cell changed:
+  // the cell holds the wall, and the cells before it share its corners
+  void dirtyAroundWall(int cell) {
+    this.dirty.addLast(cell);
+    if (cell % this.col > 0) {
+      this.dirty.addLast(cell - 1);
+    }
+    if (cell >= this.col) {
+      this.dirty.addLast(cell - this.col);
+    }
+  }
 
-    // As long as the worklist isn't empty...
-    while (this.worklistSearch.size() > 0) {
-      Cell next = this.worklistSearch.remove(0);
-      if (next.equals(to)) {
-        this.reconstruct(this.cameFromEdge, to);
-        return ; // Success!
+  // EFFECT: to pan the viewport with the arrow keys and zoom it with "+" (or "=") and
+  // "-"
+  void moveViewport(String key) {
+    if (key.equals("left")) {
+      this.viewport.pan(-1, 0);
+    }
+    else if (key.equals("right")) {
+      this.viewport.pan(1, 0);
+    }
+    else if (key.equals("up")) {
+      this.viewport.pan(0, -1);
+    }
+    else if (key.equals("down")) {
+      this.viewport.pan(0, 1);
+    }
+    else if (key.equals("+") || key.equals("=")) {
+      this.viewport.zoomIn();
+    }
+    else if (key.equals("-")) {
+      this.viewport.zoomOut();
+    }
+  }
+
+  // to return the width of the window: the whole maze if it fits on the screen
+  int screenWidth() {
+    return Math.min(this.col * 20, SCREEN);
+  }
+
+  // to return the height of the window: the whole maze if it fits on the screen
+  int screenHeight() {
+    return Math.min(this.row * 20, SCREEN);
+  }
+
+  // to return the tree of this maze rooted at the top-left cell, for the distances and
+  // paths between any two cells, building it the first time it is needed after every
+  // generation
+  MazeTree tree() {
+    if (this.tree == null) {
+      this.tree = new MazeTree(this.grid, 0);
+    }
+    return this.tree;
+  }
+
+  // to return the junction graph of this maze, building it the first time it is
+  // needed after every generation
+  JunctionGraph junctions() {
+    if (this.junctions == null) {
+      this.junctions = new JunctionGraph(this.grid);
+    }
+    return this.junctions;
+  }
+
+  // to return the repairable shortest path from the top-left to the bottom-right cell,
+  // searching for it the first time it is needed after every generation
+  PathRepair repair() {
+    if (this.repair == null) {
+      this.repair = new PathRepair(this.grid, 0, this.grid.cells() - 1);
+    }
+    return this.repair;
+  }
+
+  // EFFECT: to knock down or put back up the wall next to the clicked point, the one
+  // of the four walls of its cell that is the closest
+  // in viewport mode the point is on the screen, and too small cells are not clicked
+  public void onMouseClicked(Posn pos) {
+    if (this.viewportMode && this.viewport != null) {
+      pos = this.viewport.toMaze(pos);
+    }
+    if (this.build == null && pos != null && pos.x >= 0 && pos.y >= 0 
+        && pos.x < this.col * 20 && pos.y < this.row * 20) {
+      int cell = this.grid.index(pos.y / 20, pos.x / 20);
+      int x = pos.x % 20;
+      int y = pos.y % 20;
+      int closest = Math.min(Math.min(x, 19 - x), Math.min(y, 19 - y));
+      int direction;
+      if (closest == y) {
+        direction = MazeGrid.UP;
+      }
+      else if (closest == 19 - y) {
+        direction = MazeGrid.DOWN;
       }
-      else if (this.alreadySeen.contains(next)) {
-        // do nothing: we've already seen this one
+      else if (closest == x) {
+        direction = MazeGrid.LEFT;
       }
       else {
-        // add all the neighbors of next to the worklist for further processing
-        for (Edge e : next.edges) {
-          if (e.first.equals(next) && this.minimalPath.contains(e)) {
-            if (key.equals("b")) {
-              this.worklistSearch.add(e.second);
-            }
-            else if (key.equals("d")) {
-              this.worklistSearch.add(0, e.second);
-            }
-            this.cameFromEdge.put(e.second, next);
-          }
-          else if (e.second.equals(next) && this.minimalPath.contains(e)) {
-            if (key.equals("b")) {
-              this.worklistSearch.add(e.first);
+        direction = MazeGrid.RIGHT;
+      }
+      int neighbor = this.grid.neighbor(cell, direction);
+      if (neighbor != -1) {
+        this.toggleWall(cell, neighbor);
+      }
+    }
+  }
+
+  // EFFECT: to knock down the wall between the two given neighbouring cells, or put it
+  // back up, and show the shortest path repaired around it instead of the last search
+  // the edge only changes its valid flag; worklist and minimalPath are sorted out
+  // again before the whole maze is drawn, so an edit does not walk the lists
+  void toggleWall(int cell1, int cell2) {
+    int wall = this.grid.wallBetween(cell1, cell2);
+    boolean standing = !this.grid.hasWall(wall);
+    this.repair().setWall(wall, standing);
+    for (Edge edge : this.cellAt(cell1).edges) {
+      if (edge.first == this.cellAt(cell2) || edge.second == this.cellAt(cell2)) {
+        edge.valid = !standing;
+      }
+    }
+    this.edgesEdited = true;
+    this.tree = null;
+    this.distances = null;
+    this.junctions = null;
+    this.showRepairedPath();
+    if (this.viewportMode || (this.paintsRaster() && !this.heatmap && this.raster != null 
+        && this.raster.grid == this.grid)) {
+      this.dirtyAroundWall(Math.min(cell1, cell2));
+    }
+    else {
+      this.scene = null;
+    }
+  }
+
+  // EFFECT: to forget the cells of the last search or path and show the whole path of
+  // repair instead
+  void showRepairedPath() {
+    for (ArrayList<Cell> cells : Arrays.asList(this.alreadySeen, this.path)) {
+      for (Cell cell : cells) {
+        cell.colorExploration = false;
+        cell.colorSolution = false;
+        this.grid.unmark(this.cellIndex(cell));
+        this.dirty.addLast(this.cellIndex(cell));
+      }
+    }
+    this.alreadySeen = new ArrayList<Cell>();
+    this.path = this.cellsAt(this.repair().path());
+    for (Cell cell : this.path) {
+      cell.updateColorExploration();
+      cell.updateColorSolution();
+      this.grid.markExplored(this.cellIndex(cell));
+      this.grid.markSolution(this.cellIndex(cell));
+      this.dirty.addLast(this.cellIndex(cell));
+    }
+    this.cameFrom = new int[0];
+    this.lastSearch = null;
+    this.count = this.lastStep();
+  }
+
+  // EFFECT: to put every wall of the board in worklist and every passage in
+  // minimalPath again after walls were edited
+  void sortEditedEdges() {
+    if (this.edgesEdited) {
+      this.worklist.clear();
+      this.minimalPath.clear();
+      for (ArrayList<Cell> row : this.board) {
+        for (Cell cell : row) {
+          for (Edge edge : cell.edges) {
+            if (edge.first == cell && edge.valid) {
+              this.minimalPath.add(edge);
             }
-            else if (key.equals("d")) {
-              this.worklistSearch.add(0, e.first);
+            else if (edge.first == cell) {
+              this.worklist.add(edge);
             }
-            this.cameFromEdge.put(e.first, next);
           }
         }
-        // add next to alreadySeen, since we're done with it
-        this.alreadySeen.add(next);
       }
+      this.edgesEdited = false;
+    }
+  }
+
+  // to return a snapshot of the maze as it is now, which other threads may solve while
+  // this world goes on
+  MazeSnapshot snapshot() {
+    return new MazeSnapshot(this.grid);
+  }
+
+  // to return the distances of this maze from the top-left cell, finding them the first
+  // time they are needed after every generation
+  DistanceField distanceField() {
+    if (this.distances == null) {
+      this.distances = new DistanceField(this.grid, 0);
+    }
+    return this.distances;
+  }
+
+  // EFFECT: to generate a new maze on the same board, giving the same edges new weights
+  // in the order of createEdges, and to forget the previous maze and its search
+  // once the lists have grown to their size nothing new is kept, so regenerating again
+  // and again runs in the same memory
+  // with a generator the edges take their walls from the grid it generates instead,
+  // which is then copied into the grid of this world
+  void regenerate() {
+    boolean hasEdges = !this.worklist.isEmpty() || !this.minimalPath.isEmpty();
+    this.worklist.clear();
+    this.minimalPath.clear();
+    MazeGrid generated = this.generator == null ? null 
+        : this.generator.generate(this.row, this.col, this.rand);
+    if (!hasEdges && generated == null) {
+      // a world set up with only its board, e.g. by MazesWorld(col, row, seed), has no
+      // edges to reuse yet, so they are created with new weights instead
+      this.createEdges();
+    }
+    else {
+      for (int i = 0; i < this.row - 1; i++) {
+        for (int j = 0; j < this.col; j++) {
+          this.reuseEdge(this.board.get(i).get(j), this.board.get(i + 1).get(j), generated);
+        }
+      }
+      for (int i = 0; i < this.row; i++) {
+        for (int j = 0; j < this.col - 1; j++) {
+          this.reuseEdge(this.board.get(i).get(j), this.board.get(i).get(j + 1), generated);
+        }
+      }
+    }
+    for (int i = 0; i < this.row; i++) {
+      for (int j = 0; j < this.col; j++) {
+        this.board.get(i).get(j).colorExploration = false;
+        this.board.get(i).get(j).colorSolution = false;
+      }
+    }
+    this.count = -1;
+    this.alreadySeen.clear();
+    this.path.clear();
+    this.cameFrom = new int[0];
+    this.lastSearch = null;
+    this.dirty.clear();
+
+    if (generated == null) {
+      this.initRepresentatives();
+      this.sortEdges();
+      this.findMinimalPath();
+    }
+    this.containOnlyWalls();
+    if (!this.viewportMode && this.rasterMode && !this.heatmap && this.raster != null 
+        && this.raster.grid == this.grid) {
+      this.raster.paintMaze();
+    }
+    else {
+      this.scene = null;
+    }
+  }
+
+  // EFFECT: to give the edge between the two given cells a new weight (if the ordering
+  // reads it), make it a wall
+  // again and add it to the worklist, or, with a generated grid, to make it a passage
+  // in minimalPath or a wall in the worklist like the grid
+  void reuseEdge(Cell first, Cell second, MazeGrid generated) {
+    for (int i = 0; i < first.edges.size(); i++) {
+      Edge edge = first.edges.get(i);
+      if (edge.second == second && generated == null) {
+        edge.weight = this.ordering.weighted() ? this.rand.nextInt(100) : 0;
+        edge.valid = false;
+        this.worklist.add(edge);
+      }
+      else if (edge.second == second) {
+        edge.valid = generated.connected(this.cellIndex(first), this.cellIndex(second));
+        if (edge.valid) {
+          this.minimalPath.add(edge);
+        }
+        else {
+          this.worklist.add(edge);
+        }
+      }
+    }
+  }
+
+  // EFFECT: to do the search of the given key (see GridSearch.solve, or "j" on the
+  // junction graph) from the top-left to the bottom-right cell on the grid, replacing
+  // the results of the previous search
+  void search(String key) {
+    SearchResult result = key.equals("j") ? this.junctions().solve(0, this.grid.cells() - 1)
+        : new GridSearch(this.grid).solve(key, 0, this.grid.cells() - 1);
+    this.lastSearch = result;
+    if (this.metrics != null) {
+      this.metrics.recordSearch(result);
     }
+    this.cameFrom = result.parents;
+    this.alreadySeen = this.cellsAt(result.visited);
+    this.path = this.cellsAt(result.path);
   }
 
-  // EFFECT: to reconstruct the path from the end to the beginning
-  void reconstruct(HashMap<Cell, Cell> cameFromEdge, Cell end) {
-    this.path.add(this.board.get(this.row - 1).get(this.col - 1));
-    Cell begin = this.board.get(0).get(0);
+  // to return the cell with the given index in the board
+  Cell cellAt(int index) {
+    return this.board.get(index / this.col).get(index % this.col);
+  }
 
-    while (begin != end) {
-      this.path.add(cameFromEdge.get(end));
-      end = cameFromEdge.get(end);
+  // to return the cells with the given indices in the board
+  ArrayList<Cell> cellsAt(int[] indices) {
+    ArrayList<Cell> cells = new ArrayList<Cell>(indices.length);
+    for (int index : indices) {
+      cells.add(this.cellAt(index));
     }
+    return cells;
   }
 
-  // EFFECT: to handle the tick of the world 
+  // EFFECT: to handle the tick of the world, going on generating the maze if it is not
+  // done, or else showing as many steps of the search as the budget allows in one batch
   public void onTick() {
-    if (this.count > -1) {
-      this.count = this.count + 1;
+    if (this.build != null) {
+      this.advanceBuild();
+    }
+    else if (this.count > -1) {
+      long started = System.nanoTime();
+      int steps = 0;
+      do {
+        int end = this.stepEnd();
+        while (this.count < end) {
+          this.count = this.count + 1;
+          int index = this.reveal(this.count);
+          if (index != -1) {
+            this.dirty.addLast(index);
+          }
+        }
+        steps++;
+      } while (this.budget.allows(steps, started) && this.count < this.lastStep());
+    }
+  }
+
+  // to return the last step of the next step of the animation: for a search that went
+  // a whole level at a time, the rest of the level of the next cell it explored, or
+  // else just the next step
+  int stepEnd() {
+    int next = this.count + 1;
+    if (this.lastSearch == null || this.lastSearch.levelStarts == null 
+        || next >= this.alreadySeen.size()) {
+      return next;
+    }
+    int[] starts = this.lastSearch.levelStarts;
+    int level = Arrays.binarySearch(starts, next);
+    if (level < 0) {
+      level = -level - 2;
+    }
+    return level + 1 < starts.length ? starts[level + 1] - 1 : this.alreadySeen.size() - 1;
+  }
+
+  // to return the last step of the animation: the cells in alreadySeen and then the
+  // cells in path
+  int lastStep() {
+    return this.alreadySeen.size() + this.path.size() - 1;
+  }
+
+  // EFFECT: to color the cell shown at the given step of the animation
+  // returns the index of that cell, or -1 if the animation has no such step
+  int reveal(int step) {
+    if (step < this.alreadySeen.size()) {
+      Cell cell = this.alreadySeen.get(step);
+      cell.updateColorExploration();
+      this.grid.markExplored(this.cellIndex(cell));
+      return this.cellIndex(cell);
+    }
+    else if (step - this.alreadySeen.size() < this.path.size()) {
+      Cell cell = this.path.get(step - this.alreadySeen.size());
+      cell.updateColorSolution();
+      this.grid.markSolution(this.cellIndex(cell));
+      return this.cellIndex(cell);
+    }
+    else {
+      return -1;
+    }
+  }
 
-      if (this.count < this.alreadySeen.size()) {
-        this.alreadySeen.get(this.count).updateColorExploration();
+  // EFFECT: to jump to the end of the animation: every step left is colored at once and
+  // the maze is drawn again in one go instead of cell by cell
+  void skipToEnd() {
+    if (this.count > -1 && this.count < this.lastStep()) {
+      for (int step = this.count + 1; step <= this.lastStep(); step++) {
+        this.reveal(step);
       }
-      else if (this.count >= this.alreadySeen.size() 
-          && this.count - this.alreadySeen.size() < this.path.size()) {
-        this.path.get(this.count - this.alreadySeen.size()).updateColorSolution();
+      this.count = this.lastStep();
+      this.dirty.clear();
+      if (!this.viewportMode && this.paintsRaster() && this.raster != null) {
+        this.raster.paintMaze();
+      }
+      else {
+        this.scene = null;
       }
     }
   }
 
+  // to check if the scene is the image of a MazeRaster, which also paints the heatmap
+  boolean paintsRaster() {
+    return this.rasterMode || this.heatmap;
+  }
+
   // to make the scene of this world
+  // the scene is kept between frames: it is drawn in full once for every maze, and
+  // then only the cells changed by onTick since the last frame are drawn over it
+  // javalib still renders every image of a scene in every frame, so once the cells
+  // drawn over it outnumber the cells of the maze the scene is drawn in full again,
+  // which keeps it within a few times the size of a fresh drawing
+  // only in raster mode does a frame cost as much as what changed: the scene only holds
+  // the image of a MazeRaster, whose pixels are painted in place, so a frame does not
+  // allocate anything
   public WorldScene makeScene() {
+    if (this.viewportMode || this.build != null) {
+      return this.drawViewport();
+    }
+    if (!this.paintsRaster() && this.overlays > this.grid.cells()) {
+      this.scene = null;
+    }
+    if (this.scene == null && this.paintsRaster()) {
+      this.raster = new MazeRaster(this.grid, 20, this.heatmap ? this.distanceField() : null);
+      this.scene = new WorldScene(this.col * 20, this.row * 20);
+      this.scene.placeImageXY(this.raster.image, this.col * 10, this.row * 10);
+      this.dirty.clear();
+    }
+    else if (this.scene == null) {
+      this.scene = this.drawMaze();
+      this.overlays = 0;
+      this.dirty.clear();
+    }
+    while (!this.dirty.isEmpty()) {
+      if (this.paintsRaster()) {
+        this.raster.paintCell(this.dirty.removeFirst());
+      }
+      else {
+        this.drawCell(this.dirty.removeFirst());
+      }
+    }
+    return this.scene;
+  }
+
+  // to draw the part of the maze on the screen, building the viewport again (showing
+  // the same part) whenever the whole scene has to be drawn again, and else only
+  // counting the changed cells into its pyramid, so a frame costs as much as the screen
+  WorldScene drawViewport() {
+    if (this.scene == null) {
+      MazeViewport old = this.viewport;
+      this.viewport = new MazeViewport(this.grid, this.screenWidth(), this.screenHeight(), 
+          this.heatmap ? this.distanceField() : null);
+      if (old != null) {
+        this.viewport.showSameAs(old);
+      }
+      this.scene = new WorldScene(this.screenWidth(), this.screenHeight());
+      this.scene.placeImageXY(this.viewport.image, this.screenWidth() / 2, 
+          this.screenHeight() / 2);
+      this.dirty.clear();
+    }
+    while (!this.dirty.isEmpty()) {
+      this.viewport.update(this.dirty.removeFirst());
+    }
+    this.viewport.render();
+    return this.scene;
+  }
+
+  // to draw the whole maze: the background, the colored cells and the walls
+  WorldScene drawMaze() {
+    this.sortEditedEdges();
     WorldScene background = new WorldScene(this.col * 20, this.row * 20);
     background.placeImageXY(
         new RectangleImage(this.col * 20, this.row * 20, OutlineMode.SOLID, Color.GRAY),
         this.col * 10, this.row * 10);
-    background.placeImageXY(new RectangleImage(20, 20, OutlineMode.SOLID, Color.GREEN), 10, 10);
-    background.placeImageXY(new RectangleImage(20, 20, OutlineMode.SOLID, Color.RED), 
-        this.col * 20 - 10, this.row * 20 - 10);
+    background.placeImageXY(START, 10, 10);
+    background.placeImageXY(SOLUTION, this.col * 20 - 10, this.row * 20 - 10);
     for (ArrayList<Cell> row : this.board) {
       for (Cell cell : row) {
         if (cell.colorExploration && cell.colorSolution) {
-          background.placeImageXY(new RectangleImage(20, 20, OutlineMode.SOLID, Color.RED), 
-              cell.col * 20 + 10, cell.row * 20 + 10);
+          background.placeImageXY(SOLUTION, cell.col * 20 + 10, cell.row * 20 + 10);
         }
         else if (cell.colorExploration && cell.colorSolution) {
           background.placeImageXY(new RectangleImage(20, 20, OutlineMode.SOLID, Color.GREEN), 
@@ -347,7 +4854,33 @@ class MazesWorld extends World {
         background.placeImageXY(e.draw(), e.second.col * 20 + 10, e.second.row * 20);
       }
     }
-    return background;
+    return background;
+  }
+
+  // EFFECT: to draw the cell with the given index over the kept scene, with the walls
+  // around it drawn again on top so the cell does not cover them
+  void drawCell(int index) {
+    Cell cell = this.cellAt(index);
+    if (cell.colorExploration && cell.colorSolution) {
+      this.scene.placeImageXY(SOLUTION, cell.col * 20 + 10, cell.row * 20 + 10);
+      this.overlays++;
+      if (cell.col > 0 && this.grid.hasWall(this.grid.eastWall(index - 1))) {
+        this.scene.placeImageXY(Edge.VERTICAL_WALL, cell.col * 20, cell.row * 20 + 10);
+        this.overlays++;
+      }
+      if (cell.col < this.col - 1 && this.grid.hasWall(this.grid.eastWall(index))) {
+        this.scene.placeImageXY(Edge.VERTICAL_WALL, cell.col * 20 + 20, cell.row * 20 + 10);
+        this.overlays++;
+      }
+      if (cell.row > 0 && this.grid.hasWall(this.grid.southWall(index - this.col))) {
+        this.scene.placeImageXY(Edge.HORIZONTAL_WALL, cell.col * 20 + 10, cell.row * 20);
+        this.overlays++;
+      }
+      if (cell.row < this.row - 1 && this.grid.hasWall(this.grid.southWall(index))) {
+        this.scene.placeImageXY(Edge.HORIZONTAL_WALL, cell.col * 20 + 10, cell.row * 20 + 20);
+        this.overlays++;
+      }
+    }
   }
 }
 
@@ -365,8 +4898,7 @@ class ExamplesMazes {
   Edge edge0001;
   Edge edge0010;
   Edge edge0210;
-  HashMap<Cell, Cell> hashMap1;
-  HashMap<Cell, Cell> hashMap2;
+  UnionFind unionFind1;
 
   // to initialize the examples
   void initMazes() {
@@ -384,10 +4916,8 @@ class ExamplesMazes {
     this.edge0001 = new Edge(this.cell100, this.cell101, 20, false);
     this.edge0010 = new Edge(this.cell100, this.cell110, 20, false);
     this.edge0210 = new Edge(this.cell102, this.cell110, 30, false);
-    this.hashMap1 = new HashMap<Cell, Cell>();
-    this.hashMap1.put(this.cell100, this.cell102);
-    this.hashMap1.put(this.cell102, this.cell102);
-    this.hashMap1.put(this.cell110, this.cell110);
+    this.unionFind1 = new UnionFind(6);
+    this.unionFind1.parents = new int[] {2, 0, 2, 3, 3, 4};
   }
 
   // test the method createBoard in MazesWorld class
@@ -420,62 +4950,56 @@ class ExamplesMazes {
                 this.world1.board.get(0).get(1), 24, false))));
   }
 
-  // test the method initHashMap in MazesWorld class
-  void testInitHashMap(Tester t) {
+  // test the method initRepresentatives in MazesWorld class
+  void testInitRepresentatives(Tester t) {
     this.initMazes();
-    t.checkExpect(this.world1.representatives.get(this.world1.board.get(0).get(0)), null);
-    this.world1.initHashMap();
-    t.checkExpect(this.world1.representatives.get(this.world1.board.get(0).get(0)), 
-        this.world1.board.get(0).get(0));
+    t.checkExpect(this.world1.representatives.parents.length, 0);
+    this.world1.initRepresentatives();
+    t.checkExpect(this.world1.representatives.parents, new int[] {0, 1, 2, 3, 4, 5});
   }
 
-  // test the method find in MazesWorld class
-  void testFind(Tester t) {
+  // test the method cellIndex in MazesWorld class
+  void testCellIndex(Tester t) {
     this.initMazes();
-    this.world1.representatives = this.hashMap1;
-    t.checkExpect(this.world1.find(this.cell100), this.cell102);
-    t.checkExpect(this.world1.find(this.cell110), this.cell110);
+    t.checkExpect(this.world1.cellIndex(this.cell100), 0);
+    t.checkExpect(this.world1.cellIndex(this.cell102), 2);
+    t.checkExpect(this.world1.cellIndex(this.cell111), 4);
   }
 
-  // test the method moreThanOneRepre in MazesWorld class
-  void testMoreThanOneRepre(Tester t) {
+  // test the method find in UnionFind class
+  void testFind(Tester t) {
     this.initMazes();
-    this.world1.initHashMap();
-    this.world2.representatives.put(this.world2.board.get(0).get(0), 
-        this.world2.board.get(0).get(0));
-    this.world2.representatives.put(this.world2.board.get(0).get(1), 
-        this.world2.board.get(0).get(0));
-    this.world2.representatives.put(this.world2.board.get(0).get(2), 
-        this.world2.board.get(0).get(0));
-    this.world2.representatives.put(this.world2.board.get(1).get(0), 
-        this.world2.board.get(0).get(0));
-    this.world2.representatives.put(this.world2.board.get(1).get(1), 
-        this.world2.board.get(0).get(0));
-    this.world2.representatives.put(this.world2.board.get(1).get(2), 
-        this.world2.board.get(0).get(0));
-    this.world2.representatives.put(this.world2.board.get(2).get(0), 
-        this.world2.board.get(0).get(0));
-    this.world2.representatives.put(this.world2.board.get(2).get(1), 
-        this.world2.board.get(0).get(0));
-    this.world2.representatives.put(this.world2.board.get(2).get(2), 
-        this.world2.board.get(0).get(0));
-    t.checkExpect(this.world1.moreThanOneRepre(), true);
-    t.checkExpect(this.world2.moreThanOneRepre(), false);
-  }
-
-  // test the method union in MazesWorld class
+    t.checkExpect(this.unionFind1.find(1), 2);
+    t.checkExpect(this.unionFind1.find(5), 3);
+    t.checkExpect(this.unionFind1.parents, new int[] {2, 2, 2, 3, 3, 3});
+    t.checkExpect(new UnionFind(3).find(1), 1);
+    t.checkExpect(this.unionFind1.finds, 0L);
+  }
+
+  // test the counting of find depths in UnionFind class
+  void testFindDepths(Tester t) {
+    UnionFind sets = new UnionFind(4);
+    sets.counting = true;
+    sets.union(0, 1);
+    sets.union(2, 3);
+    sets.union(1, 3);
+    t.checkExpect(sets.find(3), 0);
+    t.checkExpect(sets.finds, 7L);
+    t.checkExpect(sets.findDepths, 4L);
+    t.checkExpect(sets.maxFindDepth, 2);
+  }
+
+  // test the method union in UnionFind class
   void testUnion(Tester t) {
     this.initMazes();
-    this.world1.initHashMap();
-    t.checkExpect(this.world1.representatives.get(this.world1.board.get(0).get(0)), 
-        this.world1.board.get(0).get(0));
-    t.checkExpect(this.world1.representatives.get(this.world1.board.get(0).get(1)), 
-        this.world1.board.get(0).get(1));
-    this.world1.union(this.world1.board.get(0).get(0), this.world1.board.get(0).get(1));
-    t.checkExpect(this.world1.representatives.get(this.world1.board.get(0).get(0)), 
-        this.world1.board.get(0).get(0));
-    t.checkExpect(this.world1.representatives.get(this.world1.board.get(0).get(1)), 
-        this.world1.board.get(0).get(0));
+    UnionFind sets = new UnionFind(4);
+    t.checkExpect(sets.union(0, 1), true);
+    t.checkExpect(sets.parents, new int[] {0, 0, 2, 3});
+    t.checkExpect(sets.ranks, new byte[] {1, 0, 0, 0});
+    t.checkExpect(sets.union(2, 1), true);
+    t.checkExpect(sets.parents, new int[] {0, 0, 0, 3});
+    t.checkExpect(sets.union(1, 2), false);
+    t.checkExpect(sets.find(3), 3);
   }
 
   // test the method getFirst in Edge class
@@ -496,7 +5020,7 @@ class ExamplesMazes {
   void testFindMinimalPath(Tester t) {
     this.initMazes();
     this.world1.createEdges();
-    this.world1.initHashMap();
+    this.world1.initRepresentatives();
     Collections.sort(this.world1.worklist);
     t.checkExpect(this.world1.minimalPath.size(), 0);
     this.world1.findMinimalPath();
@@ -507,7 +5031,7 @@ class ExamplesMazes {
   void testContainOnlyWalls(Tester t) {
     this.initMazes();
     this.world1.createEdges();
-    this.world1.initHashMap();
+    this.world1.initRepresentatives();
     Collections.sort(this.world1.worklist);
     this.world1.findMinimalPath();
     t.checkExpect(this.world1.worklist.size(), 7);
@@ -540,7 +5064,7 @@ class ExamplesMazes {
   void testMakeScene(Tester t) {
     this.initMazes();
     this.world1.createEdges();
-    this.world1.initHashMap();
+    this.world1.initRepresentatives();
     Collections.sort(this.world1.worklist);
     this.world1.findMinimalPath();
     this.world1.containOnlyWalls();
@@ -553,56 +5077,275 @@ class ExamplesMazes {
     t.checkExpect(this.world1.makeScene(), background);
   }
 
-  // test the method reconstruct in MazesWorld class
-  void testReconstruct(Tester t) {
+  // test the method makeScene in MazesWorld class once cells change between frames
+  void testMakeSceneDirty(Tester t) {
+    this.initMazes();
+    this.world1.createEdges();
+    this.world1.initRepresentatives();
+    Collections.sort(this.world1.worklist);
+    this.world1.findMinimalPath();
+    this.world1.containOnlyWalls();
+    WorldScene first = this.world1.makeScene();
+    t.checkExpect(this.world1.makeScene() == first, true);
+
+    // the cell (0, 1) has a wall below it and none on its sides
+    WorldScene expected = this.world1.drawMaze();
+    expected.placeImageXY(new RectangleImage(20, 20, OutlineMode.SOLID, Color.RED), 30, 10);
+    expected.placeImageXY(new LineImage(new Posn(20, 0), Color.DARK_GRAY), 30, 20);
+    this.world1.alreadySeen = new ArrayList<Cell>(Arrays.asList(
+        this.world1.board.get(0).get(0), this.world1.board.get(0).get(1)));
+    this.world1.board.get(0).get(1).updateColorSolution();
+    this.world1.count = 0;
+    this.world1.onTick();
+    t.checkExpect(this.world1.dirty.size, 1);
+    t.checkExpect(this.world1.makeScene(), expected);
+    t.checkExpect(this.world1.makeScene() == first, true);
+    t.checkExpect(this.world1.dirty.isEmpty(), true);
+    t.checkExpect(this.world1.overlays, 2);
+
+    // once more cells are drawn over the scene than the maze has, it is drawn again
+    for (int i = 0; i < 3; i++) {
+      this.world1.dirty.addLast(1);
+    }
+    t.checkExpect(this.world1.makeScene() == first, true);
+    t.checkExpect(this.world1.overlays, 8);
+    WorldScene redrawn = this.world1.makeScene();
+    t.checkExpect(redrawn == first, false);
+    t.checkExpect(redrawn, this.world1.drawMaze());
+    t.checkExpect(this.world1.overlays, 0);
+  }
+
+  // test the methods colorOf and paintCell in MazeRaster class
+  void testMazeRaster(Tester t) {
+    MazeGrid grid = new KruskalGenerator().generate(2, 3, new Random(5));
+    MazeRaster raster = new MazeRaster(grid, 4);
+    t.checkExpect(raster.colorOf(0), Color.GREEN);
+    t.checkExpect(raster.colorOf(5), Color.RED);
+    t.checkExpect(raster.colorOf(1), Color.GRAY);
+    // the cell 0 has a wall below it, but not to its east
+    t.checkExpect(raster.image.getPixel(1, 1), Color.GREEN);
+    t.checkExpect(raster.image.getPixel(3, 1), Color.GREEN);
+    t.checkExpect(raster.image.getPixel(1, 3), Color.DARK_GRAY);
+    t.checkExpect(raster.image.getPixel(3, 3), Color.DARK_GRAY);
+    // the cell 2 is on the outside to the east and has no wall below
+    t.checkExpect(raster.image.getPixel(11, 1), Color.GRAY);
+    t.checkExpect(raster.image.getPixel(9, 3), Color.GRAY);
+    grid.markExplored(2);
+    grid.markSolution(2);
+    raster.paintCell(2);
+    t.checkExpect(raster.image.getPixel(9, 1), Color.RED);
+    t.checkExpect(raster.image.getPixel(7, 1), Color.GRAY);
+  }
+
+  // test the method cornerIsWall in MazeRaster class
+  void testCornerIsWall(Tester t) {
+    MazeGrid grid = new KruskalGenerator().generate(2, 3, new Random(5));
+    MazeRaster raster = new MazeRaster(grid, 4);
+    t.checkExpect(raster.cornerIsWall(0, false, false), true);
+    t.checkExpect(raster.cornerIsWall(1, false, false), false);
+    t.checkExpect(raster.cornerIsWall(4, false, false), false);
+  }
+
+  // test the raster mode of makeScene in MazesWorld class
+  void testMakeSceneRaster(Tester t) {
+    MazesWorld world = new MazesWorld(new KruskalGenerator().generate(30, 30, new Random(4)));
+    world.onKeyEvent("r");
+    t.checkExpect(world.rasterMode, true);
+    WorldScene scene = world.makeScene();
+    WorldScene expected = new WorldScene(600, 600);
+    expected.placeImageXY(world.raster.image, 300, 300);
+    t.checkExpect(scene, expected);
+    // a frame allocates next to nothing, far less than a copy of the 600x600 image, which
+    // leaves room for the JIT and the JVM that measures it
+    AllocationMeter meter = new AllocationMeter();
+    meter.perFrame(world, 20);
+    t.checkExpect(meter.perFrame(world, 100) < 1024, true);
+    world.onKeyEvent("b");
+    meter.perFrame(world, 100);
+    t.checkExpect(world.makeScene() == scene, true);
+    t.checkExpect(world.raster.colorOf(world.grid.cells() - 1), Color.RED);
+    world.onKeyEvent("r");
+    t.checkExpect(world.makeScene() == scene, false);
+  }
+
+  // test the method drawCell in MazesWorld class
+  void testDrawCell(Tester t) {
     this.initMazes();
     this.world1.createEdges();
-    this.world1.initHashMap();
+    this.world1.initRepresentatives();
     Collections.sort(this.world1.worklist);
     this.world1.findMinimalPath();
     this.world1.containOnlyWalls();
-    this.world1.cameFromEdge.put(this.world1.board.get(1).get(2), 
-        this.world1.board.get(0).get(0));
+    this.world1.scene = new WorldScene(60, 40);
+    this.world1.drawCell(3);
+    t.checkExpect(this.world1.scene, new WorldScene(60, 40));
+    this.world1.board.get(1).get(0).updateColorExploration();
+    this.world1.board.get(1).get(0).updateColorSolution();
+    this.world1.drawCell(3);
+    WorldScene expected = new WorldScene(60, 40);
+    expected.placeImageXY(new RectangleImage(20, 20, OutlineMode.SOLID, Color.RED), 10, 30);
+    expected.placeImageXY(new LineImage(new Posn(20, 0), Color.DARK_GRAY), 10, 20);
+    t.checkExpect(this.world1.scene, expected);
+    t.checkExpect(this.world1.overlays, 2);
+  }
+
+  // test the method reconstruct in GridSearch class
+  void testReconstruct(Tester t) {
+    this.initMazes();
+    GridSearch engine = new GridSearch(new MazeGrid(2, 3));
+    t.checkExpect(engine.reconstruct(new int[] {0, 0, 1, -1, -1, 2}, 0, 5), 
+        new int[] {5, 2, 1, 0});
+    t.checkExpect(engine.reconstruct(new int[] {0, 0, 1, -1, -1, 2}, 0, 0), new int[] {0});
+  }
 
-    t.checkExpect(this.world1.path, new ArrayList<Cell>());
-    this.world1.reconstruct(this.world1.cameFromEdge, this.world1.board.get(1).get(2));
-    t.checkExpect(this.world1.path, 
-        new ArrayList<Cell>(Arrays.asList(this.world1.board.get(1).get(2), 
-            this.world1.board.get(0).get(0)))); 
+  // test the methods breadthFirst and depthFirst in GridSearch class
+  void testGridSearch(Tester t) {
+    MazeGrid grid = new KruskalGenerator().generate(2, 3, new Random(5));
+    SearchResult bfs = new GridSearch(grid).breadthFirst(0, 5);
+    t.checkExpect(bfs.visited, new int[] {0, 1, 2});
+    t.checkExpect(bfs.path, new int[] {5, 2, 1, 0});
+    t.checkExpect(bfs.parents, new int[] {0, 0, 1, -1, -1, 2});
+    SearchResult dfs = new GridSearch(grid).depthFirst(3, 0);
+    t.checkExpect(dfs.visited, new int[] {3, 4, 5, 2, 1});
+    t.checkExpect(dfs.path, new int[] {0, 1, 2, 5, 4, 3});
+
+    // two separate halves: the goal cannot be reached
+    MazeGrid split = new MazeGrid(2, 2);
+    split.removeWall(split.eastWall(0));
+    SearchResult none = new GridSearch(split).breadthFirst(0, 3);
+    t.checkExpect(none.visited, new int[] {0, 1});
+    t.checkExpect(none.path, new int[] {});
+  }
+
+  // test the methods in IntMinHeap class
+  void testIntMinHeap(Tester t) {
+    IntMinHeap heap = new IntMinHeap(1);
+    t.checkExpect(heap.isEmpty(), true);
+    heap.add(10, 5);
+    heap.add(11, 2);
+    heap.add(12, 9);
+    heap.add(13, 1);
+    heap.add(14, 5);
+    t.checkExpect(heap.removeMin(), 13);
+    t.checkExpect(heap.removeMin(), 11);
+    int fives = heap.removeMin() + heap.removeMin();
+    t.checkExpect(fives, 24);
+    t.checkExpect(heap.removeMin(), 12);
+    t.checkExpect(heap.isEmpty(), true);
+    t.checkException(new RuntimeException("Cannot remove from an empty heap"), 
+        heap, "removeMin");
+  }
+
+  // test the methods aStar and bidirectional in GridSearch class
+  void testInformedSearches(Tester t) {
+    MazeGrid grid = new KruskalGenerator().generate(2, 3, new Random(5));
+    SearchResult aStar = new GridSearch(grid).aStar(0, 5);
+    t.checkExpect(aStar.visited, new int[] {0, 1, 2});
+    t.checkExpect(aStar.path, new int[] {5, 2, 1, 0});
+    SearchResult middle = new GridSearch(grid).bidirectional(0, 5);
+    t.checkExpect(middle.visited, new int[] {0, 1, 2});
+    t.checkExpect(middle.path, new int[] {5, 2, 1, 0});
+    t.checkExpect(new GridSearch(grid).bidirectional(4, 4).path, new int[] {4});
+    t.checkExpect(new GridSearch(grid).manhattan(0, 5), 3);
+
+    // every search agrees with breadth-first on the shortest path
+    MazeGrid big = new KruskalGenerator().generate(40, 50, new Random(11));
+    GridSearch engine = new GridSearch(big);
+    SearchResult bfs = engine.breadthFirst(0, big.cells() - 1);
+    t.checkExpect(engine.aStar(0, big.cells() - 1).path, bfs.path);
+    t.checkExpect(engine.bidirectional(0, big.cells() - 1).path, bfs.path);
+    t.checkExpect(engine.depthFirst(0, big.cells() - 1).path, bfs.path);
+    t.checkExpect(engine.bidirectional(0, big.cells() - 1).expanded() <= bfs.expanded(), true);
+
+    // shortest paths are still found when the maze has loops
+    MazeGrid open = new MazeGrid(5, 5);
+    Arrays.fill(open.walls, 0L);
+    t.checkExpect(new GridSearch(open).aStar(0, 24).pathLength(), 9);
+    t.checkExpect(new GridSearch(open).bidirectional(0, 24).pathLength(), 9);
+    t.checkExpect(new GridSearch(new MazeGrid(2, 2)).bidirectional(0, 3).path, new int[] {});
+  }
+
+  // test the method summary in SearchResult class
+  void testSummary(Tester t) {
+    SearchResult result = new SearchResult(new int[] {0, 1}, new int[] {0, 0}, new int[] {1, 0});
+    result.elapsedNanos = 42;
+    t.checkExpect(result.summary(), "expanded=2 path=2 nanos=42");
+  }
+
+  // test the methods in IntDeque class
+  void testIntDeque(Tester t) {
+    IntDeque deque = new IntDeque(2);
+    t.checkExpect(deque.isEmpty(), true);
+    deque.addLast(1);
+    deque.addLast(2);
+    deque.addFirst(0);
+    deque.addFirst(-1);
+    t.checkExpect(deque.items.length, 4);
+    t.checkExpect(deque.highWater, 4);
+    t.checkExpect(deque.removeFirst(), -1);
+    t.checkExpect(deque.removeFirst(), 0);
+    t.checkExpect(deque.removeFirst(), 1);
+    t.checkExpect(deque.removeFirst(), 2);
+    t.checkExpect(deque.isEmpty(), true);
+    t.checkException(new RuntimeException("Cannot remove from an empty deque"), 
+        deque, "removeFirst");
+    deque.addLast(5);
+    deque.clear();
+    t.checkExpect(deque.isEmpty(), true);
+    t.checkExpect(deque.highWater, 4);
   }
 
   // test the method search in MazesWorld class
   void testSearch(Tester t) {
     this.initMazes();
     this.world1.createEdges();
-    this.world1.initHashMap();
+    this.world1.initRepresentatives();
     Collections.sort(this.world1.worklist);
     this.world1.findMinimalPath();
     this.world1.containOnlyWalls();
 
     t.checkExpect(this.world1.alreadySeen.isEmpty(), true);
-    t.checkExpect(this.world1.cameFromEdge.containsKey(this.world1.board.get(1).get(2)), false);
+    t.checkExpect(this.world1.cameFrom.length, 0);
     this.world1.search("b");
-    t.checkExpect(this.world1.alreadySeen.isEmpty(), false);
-    t.checkExpect(this.world1.cameFromEdge.containsKey(this.world1.board.get(1).get(2)), true);
+    t.checkExpect(this.world1.alreadySeen, new ArrayList<Cell>(Arrays.asList(
+        this.world1.board.get(0).get(0), this.world1.board.get(0).get(1), 
+        this.world1.board.get(0).get(2))));
+    t.checkExpect(this.world1.cameFrom[5], 2);
+    t.checkExpect(this.world1.path, new ArrayList<Cell>(Arrays.asList(
+        this.world1.board.get(1).get(2), this.world1.board.get(0).get(2), 
+        this.world1.board.get(0).get(1), this.world1.board.get(0).get(0))));
+    this.world1.search("d");
+    t.checkExpect(this.world1.alreadySeen.size(), 3);
+    t.checkExpect(this.world1.path.size(), 4);
+    this.world1.search("m");
+    t.checkExpect(this.world1.alreadySeen.size(), 3);
+    t.checkExpect(this.world1.lastSearch.pathLength(), 4);
+  }
+
+  // test the methods cellAt and cellsAt in MazesWorld class
+  void testCellAt(Tester t) {
+    this.initMazes();
+    t.checkExpect(this.world1.cellAt(4), this.world1.board.get(1).get(1));
+    t.checkExpect(this.world1.cellsAt(new int[] {2, 3}), new ArrayList<Cell>(Arrays.asList(
+        this.world1.board.get(0).get(2), this.world1.board.get(1).get(0))));
   }
   
   // test the method onKeyEvent in MazesWorld class
   void testOnKeyEvent(Tester t) {
     this.initMazes();
     this.world1.createEdges();
-    this.world1.initHashMap();
+    this.world1.initRepresentatives();
     Collections.sort(this.world1.worklist);
     this.world1.findMinimalPath();
     this.world1.containOnlyWalls();
     
     t.checkExpect(this.world1.count, -1);
     t.checkExpect(this.world1.alreadySeen.isEmpty(), true);
-    t.checkExpect(this.world1.cameFromEdge.containsKey(this.world1.board.get(1).get(2)), false);
+    t.checkExpect(this.world1.cameFrom.length, 0);
     this.world1.onKeyEvent("b");
     t.checkExpect(this.world1.count, 0);
     t.checkExpect(this.world1.alreadySeen.isEmpty(), false);
-    t.checkExpect(this.world1.cameFromEdge.containsKey(this.world1.board.get(1).get(2)), true);
+    t.checkExpect(this.world1.cameFrom[5], 2);
   }
 
   // test the method updateColorExploration in Cell class
@@ -625,7 +5368,7 @@ class ExamplesMazes {
   void testOnTick(Tester t) {
     this.initMazes();
     this.world1.createEdges();
-    this.world1.initHashMap();
+    this.world1.initRepresentatives();
     Collections.sort(this.world1.worklist);
     this.world1.findMinimalPath();
     this.world1.containOnlyWalls();
@@ -641,9 +5384,1460 @@ class ExamplesMazes {
     t.checkExpect(this.world1.alreadySeen.get(1).colorExploration, true);  
   }
 
+  // test the wall methods in MazeGrid class
+  void testMazeGridWalls(Tester t) {
+    MazeGrid grid = new MazeGrid(2, 3);
+    t.checkExpect(grid.cells(), 6);
+    t.checkExpect(grid.index(1, 2), 5);
+    t.checkExpect(grid.eastWall(4), 8);
+    t.checkExpect(grid.southWall(4), 9);
+    t.checkExpect(grid.wallBetween(1, 2), 2);
+    t.checkExpect(grid.wallBetween(4, 1), 3);
+    t.checkExpect(grid.hasWall(3), true);
+    grid.removeWall(3);
+    t.checkExpect(grid.hasWall(3), false);
+    t.checkExpect(grid.hasWall(2), true);
+    grid.addWall(3);
+    t.checkExpect(grid.hasWall(3), true);
+  }
+
+  // test the method wallBetween in MazeGrid class on a single column
+  void testWallBetweenOneColumn(Tester t) {
+    MazeGrid column = new MazeGrid(4, 1);
+    t.checkExpect(column.wallBetween(0, 1), column.southWall(0));
+    t.checkExpect(column.wallBetween(3, 2), column.southWall(2));
+    MazeGrid maze = new KruskalGenerator().generate(5, 1, new Random(3));
+    t.checkExpect(maze.passages(), 4);
+    for (int cell = 0; cell < 4; cell += 1) {
+      t.checkExpect(maze.hasWall(maze.southWall(cell)), false);
+    }
+  }
+
+  // test the method open in MazeGrid class
+  void testOpen(Tester t) {
+    MazeGrid grid = new MazeGrid(2, 3);
+    grid.removeWall(grid.southWall(1));
+    grid.removeWall(grid.eastWall(1));
+    t.checkExpect(grid.open(1, MazeGrid.DOWN), 4);
+    t.checkExpect(grid.open(4, MazeGrid.UP), 1);
+    t.checkExpect(grid.open(1, MazeGrid.RIGHT), 2);
+    t.checkExpect(grid.open(2, MazeGrid.LEFT), 1);
+    t.checkExpect(grid.open(1, MazeGrid.LEFT), -1);
+    t.checkExpect(grid.open(1, MazeGrid.UP), -1);
+    t.checkExpect(grid.open(4, MazeGrid.DOWN), -1);
+    t.checkExpect(grid.open(2, MazeGrid.RIGHT), -1);
+  }
+
+  // test the method connected in MazeGrid class
+  void testConnected(Tester t) {
+    MazeGrid grid = new MazeGrid(2, 3);
+    grid.removeWall(grid.eastWall(2));
+    grid.removeWall(grid.eastWall(0));
+    t.checkExpect(grid.connected(1, 0), true);
+    t.checkExpect(grid.connected(2, 3), false);
+    t.checkExpect(grid.connected(0, 3), false);
+    t.checkExpect(grid.connected(0, 2), false);
+  }
+
+  // test the explored and solution marks in MazeGrid class
+  void testMarks(Tester t) {
+    MazeGrid grid = new MazeGrid(10, 10);
+    t.checkExpect(grid.isExplored(70), false);
+    grid.markExplored(70);
+    grid.markSolution(3);
+    t.checkExpect(grid.isExplored(70), true);
+    t.checkExpect(grid.isExplored(6), false);
+    t.checkExpect(grid.isSolution(3), true);
+    grid.clearMarks();
+    t.checkExpect(grid.isExplored(70), false);
+    t.checkExpect(grid.isSolution(3), false);
+  }
+
+  // test the method generate in KruskalGenerator class
+  void testKruskalGenerator(Tester t) {
+    this.initMazes();
+    MazeGrid grid = new KruskalGenerator().generate(2, 3, new Random(5));
+    t.checkExpect(grid.hasWall(grid.southWall(0)), true);
+    t.checkExpect(grid.hasWall(grid.southWall(1)), true);
+    t.checkExpect(grid.hasWall(grid.southWall(2)), false);
+    t.checkExpect(grid.hasWall(grid.eastWall(0)), false);
+    t.checkExpect(grid.hasWall(grid.eastWall(4)), false);
+
+    MazesWorld world = new MazesWorld(30, 20, 7);
+    world.createEdges();
+    world.initRepresentatives();
+    Collections.sort(world.worklist);
+    world.findMinimalPath();
+    t.checkExpect(new KruskalGenerator().generate(20, 30, new Random(7)).walls, 
+        world.toGrid().walls);
+  }
+
+  // test the methods order and sort in BucketOrdering class
+  void testBucketOrdering(Tester t) {
+    this.initMazes();
+    t.checkExpect(new BucketOrdering().order(7, new Random(5)), 
+        new int[] {5, 4, 3, 6, 2, 0, 1});
+    Edge edge0001 = new Edge(this.cell100, this.cell101, 30, false);
+    ArrayList<Edge> edges = new ArrayList<Edge>(Arrays.asList(
+        edge0001, this.edge0010, this.edge0210, this.edge0001));
+    new BucketOrdering().sort(edges, new Random(5));
+    t.checkExpect(edges, new ArrayList<Edge>(Arrays.asList(
+        this.edge0010, this.edge0001, edge0001, this.edge0210)));
+  }
+
+  // test the methods order and sort in ShuffleOrdering class
+  void testShuffleOrdering(Tester t) {
+    this.initMazes();
+    t.checkExpect(new ShuffleOrdering().order(5, new Random(5)), new int[] {3, 1, 4, 0, 2});
+    t.checkExpect(new ShuffleOrdering().order(0, new Random(5)), new int[] {});
+    ArrayList<Edge> edges = new ArrayList<Edge>(Arrays.asList(
+        this.edge0001, this.edge0010, this.edge0210));
+    new ShuffleOrdering().sort(edges, new Random(5));
+    t.checkExpect(edges.size(), 3);
+    t.checkExpect(edges.contains(this.edge0001) && edges.contains(this.edge0010)
+        && edges.contains(this.edge0210), true);
+  }
+
+  // test the method generate in KruskalGenerator class with a shuffled ordering
+  void testShuffledKruskal(Tester t) {
+    MazeGrid grid = new KruskalGenerator(new ShuffleOrdering()).generate(8, 9, new Random(3));
+    int passages = 0;
+    for (int cell = 0; cell < grid.cells(); cell++) {
+      if (grid.open(cell, MazeGrid.RIGHT) != -1) {
+        passages++;
+      }
+      if (grid.open(cell, MazeGrid.DOWN) != -1) {
+        passages++;
+      }
+    }
+    t.checkExpect(passages, 71);
+    MazesWorld world = new MazesWorld(9, 8, new ShuffleOrdering());
+    t.checkExpect(world.minimalPath.size(), 71);
+    t.checkExpect(world.worklist.size(), 127 - 71);
+    // no weights are drawn for the shuffle, so the world takes the generator's edges
+    t.checkExpect(new ShuffleOrdering().weighted(), false);
+    t.checkExpect(new BucketOrdering().weighted(), true);
+    MazesWorld seeded = new MazesWorld(9, 8, new ShuffleOrdering(), new Random(3));
+    t.checkExpect(seeded.grid.walls, grid.walls);
+    t.checkExpect(seeded.cellAt(0).edges.get(0).weight, 0);
+  }
+
+  // test the method passages in MazeGrid class
+  void testPassages(Tester t) {
+    t.checkExpect(new MazeGrid(3, 4).passages(), 0);
+    t.checkExpect(new KruskalGenerator().generate(6, 7, new Random(2)).passages(), 41);
+  }
+
+  // test the methods find and union in ConcurrentUnionFind class
+  void testConcurrentUnionFind(Tester t) {
+    ConcurrentUnionFind sets = new ConcurrentUnionFind(4);
+    t.checkExpect(sets.find(2), 2);
+    t.checkExpect(sets.union(0, 1), true);
+    t.checkExpect(sets.find(0), 1);
+    t.checkExpect(sets.union(3, 0), true);
+    t.checkExpect(sets.find(0), 3);
+    t.checkExpect(sets.union(1, 3), false);
+    t.checkExpect(sets.find(2), 2);
+  }
+
+  // test the method generate in BoruvkaGenerator class
+  void testBoruvkaGenerator(Tester t) {
+    MazeGrid grid = new BoruvkaGenerator(4).generate(60, 70, 99L);
+    t.checkExpect(grid.passages(), 60 * 70 - 1);
+    t.checkExpect(new GridSearch(grid).breadthFirst(0, -1).expanded(), 60 * 70);
+    t.checkExpect(new BoruvkaGenerator(1).generate(60, 70, 99L).walls, grid.walls);
+    t.checkExpect(new BoruvkaGenerator(3).generate(60, 70, new Random(4)).walls, 
+        new BoruvkaGenerator(2).generate(60, 70, new Random(4)).walls);
+    t.checkExpect(new BoruvkaGenerator(2).generate(1, 1, 5L).passages(), 0);
+    t.checkExpect(new BoruvkaGenerator(2).generate(1, 9, 5L).passages(), 8);
+    t.checkExpect(new BoruvkaGenerator(1).pool, null);
+    t.checkExpect(new BoruvkaGenerator().pool == ForkJoinPool.commonPool(), true);
+    ForkJoinPool pool = new ForkJoinPool(3);
+    BoruvkaGenerator shared = new BoruvkaGenerator(pool);
+    t.checkExpect(shared.generate(60, 70, 99L).walls, grid.walls);
+    t.checkExpect(shared.generate(20, 30, 5L).walls, 
+        new BoruvkaGenerator(1).generate(20, 30, 5L).walls);
+    t.checkExpect(shared.pool == pool && !pool.isShutdown(), true);
+    pool.shutdown();
+  }
+
+  // test the method key in BoruvkaGenerator class
+  void testBoruvkaKey(Tester t) {
+    BoruvkaGenerator generator = new BoruvkaGenerator(1);
+    t.checkExpect(generator.key(7L, 12) & Integer.MAX_VALUE, 12L);
+    t.checkExpect(generator.key(7L, 12) > 0, true);
+    t.checkExpect(generator.key(7L, 12), generator.key(7L, 12));
+    t.checkExpect(generator.key(7L, 12) == generator.key(8L, 12), false);
+  }
+
+  // test the wall methods in MazeRow class
+  void testMazeRow(Tester t) {
+    MazeRow row = new MazeRow(4, 40);
+    t.checkExpect(row.hasEastWall(35), true);
+    t.checkExpect(row.hasSouthWall(35), true);
+    row.removeEastWall(35);
+    t.checkExpect(row.hasEastWall(35), false);
+    t.checkExpect(row.hasSouthWall(35), true);
+    row.removeSouthWall(0);
+    t.checkExpect(row.hasSouthWall(0), false);
+    MazeRow small = new MazeRow(0, 3);
+    small.removeEastWall(0);
+    small.removeSouthWall(2);
+    t.checkExpect(small.toText(), "|     |  |\n+--+--+  +\n");
+  }
+
+  // test the methods hasNext and next in EllerRows class
+  void testEllerRows(Tester t) {
+    EllerRows eller = new EllerRows(3, 5, new Random(8));
+    t.checkExpect(eller.hasNext(), true);
+    t.checkExpect(eller.next().index, 0L);
+    t.checkExpect(eller.next().index, 1L);
+    MazeRow last = eller.next();
+    t.checkExpect(eller.hasNext(), false);
+    for (int col = 0; col < 5; col++) {
+      t.checkExpect(last.hasSouthWall(col), true);
+    }
+    t.checkException(new NoSuchElementException("The maze has no more rows"), 
+        eller, "next");
+
+    // a maze without end keeps its state to the width of a row
+    EllerRows endless = new EllerRows(Long.MAX_VALUE, 8, new Random(1));
+    for (int i = 0; i < 10000; i++) {
+      endless.next();
+    }
+    t.checkExpect(endless.hasNext(), true);
+    t.checkExpect(endless.labels.length, 8);
+  }
+
+  // test the method coinFlip in EllerRows class
+  void testCoinFlip(Tester t) {
+    EllerRows eller = new EllerRows(1, 1, new Random(3));
+    long bits = new Random(3).nextLong();
+    t.checkExpect(eller.coinFlip(), (bits & 1) != 0);
+    t.checkExpect(eller.coinFlip(), (bits & 2) != 0);
+    t.checkExpect(eller.bitsLeft, 62);
+  }
+
+  // test the method generate in EllerGenerator class
+  void testEllerGenerator(Tester t) {
+    EllerGenerator generator = new EllerGenerator();
+    MazeGrid grid = generator.generate(50, 40, new Random(6));
+    t.checkExpect(grid.passages(), 50 * 40 - 1);
+    t.checkExpect(new GridSearch(grid).breadthFirst(0, -1).expanded(), 50 * 40);
+    t.checkExpect(generator.generate(1, 6, new Random(6)).passages(), 5);
+    t.checkExpect(generator.generate(6, 1, new Random(6)).passages(), 5);
+  }
+
+  // test the methods save and load in MazeFile class
+  void testMazeFile(Tester t) throws IOException {
+    Path path = Files.createTempFile("maze", ".bin");
+    MazeGrid grid = new KruskalGenerator().generate(33, 21, new Random(12));
+    new MazeFile(path).save(grid, 12L, "kruskal");
+    t.checkExpect(Files.size(path), 48L + 8 * grid.walls.length);
+    t.checkExpect(new String(Arrays.copyOf(Files.readAllBytes(path), 4), 
+        StandardCharsets.US_ASCII), "MAZE");
+
+    MazeFile file = new MazeFile(path);
+    MazeGrid loaded = file.load();
+    t.checkExpect(file.rows, 33);
+    t.checkExpect(file.cols, 21);
+    t.checkExpect(file.seed, 12L);
+    t.checkExpect(file.generator, "kruskal");
+    t.checkExpect(loaded.walls, grid.walls);
+    t.checkExpect(new GridSearch(loaded).breadthFirst(0, loaded.cells() - 1).path, 
+        new GridSearch(grid).breadthFirst(0, grid.cells() - 1).path);
+
+    MazeFile chunked = new MazeFile(path);
+    chunked.chunk = 3;
+    chunked.save(grid, 12L, "kruskal");
+    t.checkExpect(new MazeFile(path).load().walls, grid.walls);
+    t.checkExpect(chunked.load().walls, grid.walls);
+    t.checkException(new IllegalArgumentException(
+        "Generator name longer than 16 bytes: kruskal-with-a-long-name"), 
+        file, "save", grid, 12L, "kruskal-with-a-long-name");
+    t.checkExpect(file.load().walls, grid.walls);
+
+    ByteBuffer header = ByteBuffer.allocate(48).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(MazeFile.MAGIC).putInt(MazeFile.VERSION).putInt(-2).putInt(3);
+    Files.write(path, header.array());
+    t.checkException(new IOException("Bad maze size -2x3: " + path), file, "load");
+    header.putInt(8, 65536).putInt(12, 65536);
+    Files.write(path, header.array());
+    t.checkException(new IOException("Bad maze size 65536x65536: " + path), file, "load");
+    header.putInt(8, 32768).putInt(12, 32769);
+    Files.write(path, header.array());
+    t.checkException(new IOException("Bad maze size 32768x32769: " + path), file, "load");
+    header.putInt(8, 32768).putInt(12, 32768);
+    Files.write(path, header.array());
+    t.checkException(new IOException("Truncated maze file: " + path), file, "load");
+    header.putInt(8, 4).putInt(12, 5);
+    Files.write(path, header.array());
+    t.checkException(new IOException("Truncated maze file: " + path), file, "load");
+
+    Files.write(path, new byte[] {1, 2, 3});
+    t.checkException(new IOException("Not a maze file: " + path), file, "load");
+    Files.write(path, new byte[64]);
+    t.checkException(new IOException("Not a maze file: " + path), file, "load");
+    Files.delete(path);
+  }
+
+  // test the method toGrid in MazesWorld class
+  void testToGrid(Tester t) {
+    this.initMazes();
+    this.world1.createEdges();
+    this.world1.initRepresentatives();
+    Collections.sort(this.world1.worklist);
+    this.world1.findMinimalPath();
+    this.world1.containOnlyWalls();
+    MazeGrid grid = this.world1.toGrid();
+    t.checkExpect(grid.connected(0, 3), false);
+    t.checkExpect(grid.connected(1, 4), false);
+    t.checkExpect(grid.connected(2, 5), true);
+    t.checkExpect(grid.connected(3, 4), true);
+  }
+
+  // test the constructor of MazesWorld that adapts a MazeGrid
+  void testEdgesFromGrid(Tester t) {
+    this.initMazes();
+    MazesWorld world = new MazesWorld(new KruskalGenerator().generate(2, 3, new Random(5)));
+    t.checkExpect(world.minimalPath.size(), 5);
+    t.checkExpect(world.worklist, new ArrayList<Edge>(Arrays.asList(
+        new Edge(world.board.get(0).get(0), world.board.get(1).get(0), 0, false),
+        new Edge(world.board.get(0).get(1), world.board.get(1).get(1), 0, false))));
+    t.checkExpect(world.board.get(1).get(1).edges.size(), 3);
+    t.checkExpect(world.toGrid().walls, world.grid.walls);
+  }
+
+  // test the methods in FrameBudget class
+  void testFrameBudget(Tester t) {
+    FrameBudget budget = new FrameBudget(3, 0);
+    t.checkExpect(budget.allows(2, System.nanoTime()), true);
+    t.checkExpect(budget.allows(3, System.nanoTime()), false);
+    budget.faster();
+    t.checkExpect(budget.cellsPerTick, 6);
+    budget.slower();
+    budget.slower();
+    budget.slower();
+    t.checkExpect(budget.cellsPerTick, 1);
+    budget.toggleTimed();
+    t.checkExpect(budget.cellsPerTick, Integer.MAX_VALUE);
+    t.checkExpect(budget.nanosPerTick, FrameBudget.TIMED);
+    t.checkExpect(budget.allows(1000, System.nanoTime()), true);
+    t.checkExpect(budget.allows(1000, System.nanoTime() - FrameBudget.TIMED), false);
+    budget.toggleTimed();
+    t.checkExpect(budget.nanosPerTick, 0L);
+    t.checkExpect(budget.cellsPerTick, 1);
+  }
+
+  // test the method onTick in MazesWorld class with many steps in a tick
+  void testOnTickBatch(Tester t) {
+    MazesWorld world = new MazesWorld(new KruskalGenerator().generate(10, 10, new Random(3)));
+    world.onKeyEvent("b");
+    world.onKeyEvent("f");
+    world.onKeyEvent("f");
+    world.onTick();
+    t.checkExpect(world.count, 4);
+    t.checkExpect(world.dirty.size, 4);
+    t.checkExpect(world.alreadySeen.get(4).colorExploration, true);
+    t.checkExpect(world.alreadySeen.get(5).colorExploration, false);
+    world.budget = new FrameBudget(Integer.MAX_VALUE, 0);
+    world.onTick();
+    t.checkExpect(world.count, world.lastStep());
+    t.checkExpect(world.path.get(0).colorSolution, true);
+  }
+
+  // test the methods reveal and lastStep in MazesWorld class
+  void testReveal(Tester t) {
+    MazesWorld world = new MazesWorld(new KruskalGenerator().generate(2, 3, new Random(5)));
+    world.search("b");
+    t.checkExpect(world.lastStep(), 6);
+    t.checkExpect(world.reveal(2), 2);
+    t.checkExpect(world.board.get(0).get(2).colorExploration, true);
+    t.checkExpect(world.grid.isExplored(2), true);
+    t.checkExpect(world.reveal(3), 5);
+    t.checkExpect(world.board.get(1).get(2).colorSolution, true);
+    t.checkExpect(world.grid.isSolution(5), true);
+    t.checkExpect(world.reveal(7), -1);
+  }
+
+  // test the method skipToEnd in MazesWorld class
+  void testSkipToEnd(Tester t) {
+    MazesWorld world = new MazesWorld(new KruskalGenerator().generate(10, 10, new Random(3)));
+    world.skipToEnd();
+    t.checkExpect(world.count, -1);
+    world.onKeyEvent("b");
+    world.makeScene();
+    world.onTick();
+    world.onKeyEvent("e");
+    t.checkExpect(world.count, world.lastStep());
+    t.checkExpect(world.scene, null);
+    t.checkExpect(world.dirty.isEmpty(), true);
+    t.checkExpect(world.path.get(world.path.size() - 1).colorSolution, true);
+    t.checkExpect(world.alreadySeen.get(world.alreadySeen.size() - 1).colorExploration, true);
+
+    MazesWorld raster = new MazesWorld(new KruskalGenerator().generate(10, 10, new Random(3)));
+    raster.onKeyEvent("r");
+    WorldScene scene = raster.makeScene();
+    raster.onKeyEvent("b");
+    raster.onKeyEvent("e");
+    t.checkExpect(raster.makeScene() == scene, true);
+    t.checkExpect(raster.raster.image.getPixel(25, 25), Color.RED);
+  }
+
+  // test the constructor of MazeBatch class
+  void testMazeBatchChecks(Tester t) {
+    t.checkConstructorException(new IllegalArgumentException("Unknown generator: aldous"), 
+        "MazeBatch", 10, 10, 0L, 1L, "aldous", "b", 1);
+    t.checkConstructorException(new IllegalArgumentException("Unknown solver: x"), 
+        "MazeBatch", 10, 10, 0L, 1L, "kruskal", "x", 1);
+  }
+
+  // test the method options in MazeBatch class
+  void testMazeBatchOptions(Tester t) {
+    HashMap<String, String> options = new HashMap<String, String>();
+    t.checkExpect(MazeBatch.options(new String[] {}), options);
+    options.put("rows", "5");
+    options.put("seeds", "1..9");
+    t.checkExpect(MazeBatch.options(new String[] {"--rows", "5", "--seeds", "1..9"}), options);
+    t.checkException(new IllegalArgumentException("Expected an option instead of rows"), 
+        new MazeBatch(2, 2, 0, 0, "kruskal", "b", 1), "options", 
+        (Object) new String[] {"rows", "5"});
+    t.checkException(new IllegalArgumentException("Unknown option: --seed"), 
+        new MazeBatch(2, 2, 0, 0, "kruskal", "b", 1), "options", 
+        (Object) new String[] {"--rows", "5", "--seed", "3"});
+    t.checkException(new IllegalArgumentException("Missing a value for --out"), 
+        new MazeBatch(2, 2, 0, 0, "kruskal", "b", 1), "options", 
+        (Object) new String[] {"--rows", "5", "--out"});
+  }
+
+  // test the methods generate and runJob in MazeBatch class
+  void testMazeBatchJob(Tester t) {
+    MazeBatch batch = new MazeBatch(2, 3, 5, 5, "kruskal", "b", 1);
+    t.checkExpect(batch.generate(5).walls, 
+        new KruskalGenerator().generate(2, 3, new Random(5)).walls);
+    t.checkExpect(batch.runJob(5).startsWith("5,2,3,kruskal,b,4,3,"), true);
+    for (String generator : new String[] {"shuffle", "boruvka", "eller"}) {
+      MazeGrid grid = new MazeBatch(20, 30, 0, 0, generator, "a", 1).generate(7);
+      t.checkExpect(grid.passages(), 20 * 30 - 1);
+    }
+  }
+
+  // test the method run in MazeBatch class
+  void testMazeBatchRun(Tester t) throws IOException, InterruptedException {
+    StringWriter out = new StringWriter();
+    MazeBatch batch = new MazeBatch(15, 15, 10, 29, "kruskal", "m", 3);
+    t.checkExpect(batch.run(out), 20L);
+    String[] lines = out.toString().split("\n");
+    t.checkExpect(lines.length, 21);
+    t.checkExpect(lines[0], MazeBatch.HEADER);
+    long seeds = 0;
+    for (int i = 1; i < lines.length; i++) {
+      seeds += Long.parseLong(lines[i].split(",")[0]);
+    }
+    t.checkExpect(seeds, 390L);
+  }
+
+  // test the metrics of the phases in MazesWorld class
+  void testMazeMetrics(Tester t) {
+    MazesWorld world = new MazesWorld(3, 3, 5);
+    t.checkExpect(world.metrics, null);
+    world.metrics = new MazeMetrics();
+    world.createEdges();
+    world.initRepresentatives();
+    world.sortEdges();
+    world.findMinimalPath();
+    world.containOnlyWalls();
+    MazeMetrics generated = world.metrics.snapshot();
+    t.checkExpect(generated.edgesCreated, 12L);
+    t.checkExpect(generated.edgesAccepted, 8L);
+    t.checkExpect(generated.edgesExamined >= 8 && generated.edgesExamined <= 12, true);
+    t.checkExpect(generated.finds, 2 * generated.edgesExamined);
+    t.checkExpect(generated.maxFindDepth >= 1, true);
+    t.checkExpect(generated.averageFindDepth() > 0, true);
+    t.checkExpect(generated.cellsExpanded, 0L);
+    world.search("b");
+    t.checkExpect(world.metrics.cellsExpanded, (long) world.lastSearch.expanded());
+    t.checkExpect(world.metrics.frontierPeak, world.lastSearch.frontierPeak);
+    t.checkExpect(world.metrics.searchNanos, world.lastSearch.elapsedNanos);
+    t.checkExpect(generated.cellsExpanded, 0L);
+    t.checkExpect(world.metrics.summary().startsWith("edges=12 examined="), true);
+    t.checkExpect(new MazeMetrics().averageFindDepth(), 0.0);
+
+    // the finds are only taken from the union-find once it has been used
+    world.metrics = new MazeMetrics();
+    world.createEdges();
+    world.sortEdges();
+    t.checkExpect(world.metrics.finds, 0L);
+    t.checkExpect(world.metrics.maxFindDepth, 0);
+  }
+
+  // test the frontier peak of the searches in GridSearch class
+  void testFrontierPeak(Tester t) {
+    MazeGrid grid = new MazeGrid(1, 3);
+    grid.removeWall(grid.eastWall(0));
+    grid.removeWall(grid.eastWall(1));
+    GridSearch search = new GridSearch(grid);
+    t.checkExpect(search.breadthFirst(1, 2).frontierPeak, 2);
+    t.checkExpect(search.depthFirst(1, 2).frontierPeak, 2);
+    t.checkExpect(search.aStar(1, 0).frontierPeak, 2);
+    t.checkExpect(search.bidirectional(0, 2).frontierPeak, 2);
+  }
+
+  // test the flight recorder events of MazePhaseEvent class
+  void testMazePhaseEvent(Tester t) throws IOException {
+    t.checkExpect(MazePhaseEvent.recording(), false);
+    Path path = Files.createTempFile("mazes", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("mazes.Phase");
+      recording.start();
+      t.checkExpect(MazePhaseEvent.recording(), true);
+      new MazesWorld(4, 4).search("a");
+      recording.stop();
+      recording.dump(path);
+    }
+    ArrayList<String> phases = new ArrayList<String>();
+    int maxFindDepth = 0;
+    for (RecordedEvent event : RecordingFile.readAllEvents(path)) {
+      phases.add(event.getString("phase"));
+      maxFindDepth = Math.max(maxFindDepth, event.getInt("maxFindDepth"));
+    }
+    Files.delete(path);
+    t.checkExpect(phases, new ArrayList<String>(Arrays.asList("createEdges", "sort", 
+        "findMinimalPath", "containOnlyWalls", "search a")));
+    t.checkExpect(maxFindDepth >= 1, true);
+    t.checkExpect(MazePhaseEvent.recording(), false);
+
+    // without a recording an event is not even made
+    AllocationMeter meter = new AllocationMeter();
+    long before = meter.allocated();
+    for (int i = 0; i < 10000; i++) {
+      MazePhaseEvent.emit("search", "b", 16, 1, 1, 0, null, 1);
+    }
+    t.checkExpect(meter.allocated() - before < 1024, true);
+  }
+
+  // test the seeded constructor of MazesWorld class that generates the whole maze
+  void testSeededWorld(Tester t) {
+    MazesWorld world = new MazesWorld(30, 20, new BucketOrdering(), new Random(7));
+    t.checkExpect(world.grid.walls, 
+        new MazesWorld(30, 20, new BucketOrdering(), new Random(7)).grid.walls);
+    t.checkExpect(world.grid.walls, 
+        new KruskalGenerator().generate(20, 30, new Random(7)).walls);
+    t.checkExpect(world.minimalPath.size(), 599);
+  }
+
+  // test the static method generate in MazeBatch class
+  void testMazeBatchGenerate(Tester t) {
+    t.checkExpect(MazeBatch.generate("kruskal", 4, 5, 3L).walls, 
+        new KruskalGenerator().generate(4, 5, new Random(3)).walls);
+    t.checkExpect(MazeBatch.generate("eller", 4, 5, 3L).passages(), 19);
+    t.checkExpect(MazeBatch.generate("boruvka", 4, 5, 3L).walls, 
+        new BoruvkaGenerator(1).generate(4, 5, 3L).walls);
+    t.checkException(new IllegalArgumentException("Unknown generator: aldous"), 
+        new MazeBatch(4, 5, 0, 0, "kruskal", "b", 1), "generate", "aldous", 4, 5, 3L);
+  }
+
+  // test the methods maze and solve in MazeCache class
+  void testMazeCache(Tester t) {
+    MazeCache cache = new MazeCache(1 << 20);
+    MazeGrid first = cache.maze(20, 30, 7, "kruskal");
+    t.checkExpect(first.walls, new KruskalGenerator().generate(20, 30, new Random(7)).walls);
+    t.checkExpect(cache.misses, 1L);
+    MazeGrid again = cache.maze(20, 30, 7, "kruskal");
+    t.checkExpect(cache.hits, 1L);
+    t.checkExpect(again.walls, first.walls);
+    t.checkExpect(again == first, false);
+    again.removeWall(0);
+    t.checkExpect(cache.maze(20, 30, 7, "kruskal").walls, first.walls);
+    long size = MazeCache.ENTRY_BYTES + 8L * first.walls.length;
+    t.checkExpect(cache.bytes, size);
+    t.checkExpect(cache.mazes.get("20x30:7:kruskal").view().walls 
+        == cache.mazes.get("20x30:7:kruskal").walls, true);
+
+    int[] path = cache.solve(20, 30, 7, "kruskal", "b", 0, 599);
+    t.checkExpect(path, new GridSearch(first).breadthFirst(0, 599).path);
+    t.checkExpect(cache.misses, 2L);
+    t.checkExpect(cache.hits, 2L);
+    path[0] = -1;
+    t.checkExpect(cache.solve(20, 30, 7, "kruskal", "b", 0, 599)[0], 599);
+    t.checkExpect(cache.hits, 3L);
+    t.checkExpect(cache.misses, 2L);
+    t.checkExpect(cache.bytes, size + MazeCache.ENTRY_BYTES + 4L * path.length);
+    t.checkExpect(MazeCache.key(20, 30, 7, "kruskal"), "20x30:7:kruskal");
+    t.checkException(new IllegalArgumentException("Unknown generator: aldous"), 
+        cache, "maze", 20, 30, 7L, "aldous");
+  }
+
+  // test the eviction of the least recently used mazes in MazeCache class
+  void testMazeCacheEviction(Tester t) {
+    long size = new CachedMaze(new MazeGrid(10, 32)).bytes;
+    t.checkExpect(size, MazeCache.ENTRY_BYTES + 8L * 10);
+    MazeCache cache = new MazeCache(2 * size);
+    cache.maze(10, 32, 1, "kruskal");
+    cache.maze(10, 32, 2, "kruskal");
+    cache.maze(10, 32, 1, "kruskal");
+    cache.maze(10, 32, 3, "kruskal");
+    t.checkExpect(cache.bytes, 2 * size);
+    t.checkExpect(new ArrayList<String>(cache.mazes.keySet()), 
+        new ArrayList<String>(Arrays.asList("10x32:1:kruskal", "10x32:3:kruskal")));
+    t.checkExpect(cache.solve(10, 32, 3, "kruskal", "b", 0, 0), new int[] {0});
+    t.checkExpect(cache.bytes, size + MazeCache.ENTRY_BYTES + 4);
+    t.checkExpect(new ArrayList<String>(cache.mazes.keySet()), 
+        new ArrayList<String>(Arrays.asList("10x32:3:kruskal")));
+    MazeCache tiny = new MazeCache(10);
+    t.checkExpect(tiny.maze(10, 32, 1, "kruskal").cells(), 320);
+    t.checkExpect(tiny.mazes.size(), 0);
+    t.checkExpect(tiny.bytes, 0L);
+  }
+
+  // test the method regenerate in MazesWorld class
+  void testRegenerate(Tester t) {
+    MazesWorld world = new MazesWorld(30, 20, new BucketOrdering(), new Random(7));
+    Cell corner = world.cellAt(0);
+    Edge edge = corner.edges.get(0);
+    MazeGrid grid = world.grid;
+    world.onKeyEvent("b");
+    world.onTick();
+    world.regenerate();
+    t.checkExpect(world.cellAt(0) == corner, true);
+    t.checkExpect(corner.edges.size(), 2);
+    t.checkExpect(corner.edges.get(0) == edge, true);
+    t.checkExpect(world.grid == grid, true);
+    t.checkExpect(world.worklist.size(), 1150 - 599);
+    t.checkExpect(world.minimalPath.size(), 599);
+    t.checkExpect(world.alreadySeen.size(), 0);
+    t.checkExpect(world.path.size(), 0);
+    t.checkExpect(world.cameFrom.length, 0);
+    t.checkExpect(world.lastSearch, null);
+    t.checkExpect(world.count, -1);
+    t.checkExpect(corner.colorExploration, false);
+    t.checkExpect(new GridSearch(world.grid).breadthFirst(0, -1).expanded(), 600);
+
+    Random rand = new Random(7);
+    new MazesWorld(30, 20, new BucketOrdering(), rand);
+    t.checkExpect(world.grid.walls, 
+        new MazesWorld(30, 20, new BucketOrdering(), rand).grid.walls);
+
+    // a world with only its board gets its edges on the first "n"
+    MazesWorld bare = new MazesWorld(5, 4, 1);
+    bare.onKeyEvent("n");
+    t.checkExpect(bare.grid.passages(), 19);
+    t.checkExpect(bare.minimalPath.size(), 19);
+    t.checkExpect(bare.worklist.size(), 31 - 19);
+    t.checkExpect(bare.cellAt(0).edges.size(), 2);
+    t.checkExpect(new GridSearch(bare.grid).breadthFirst(0, -1).expanded(), 20);
+    bare.onKeyEvent("n");
+    t.checkExpect(bare.cellAt(0).edges.size(), 2);
+    t.checkExpect(bare.grid.passages(), 19);
+  }
+
+  // test that regenerating again and again allocates next to nothing
+  void testRegenerateAllocation(Tester t) {
+    MazesWorld world = new MazesWorld(20, 20, new BucketOrdering(), new Random(3));
+    AllocationMeter meter = new AllocationMeter();
+    world.onKeyEvent("n");
+    world.onKeyEvent("n");
+    long before = meter.allocated();
+    world.onKeyEvent("n");
+    t.checkExpect(meter.allocated() - before < 1024, true);
+  }
+
+  // test the distances between any two cells in MazeTree class
+  void testMazeTree(Tester t) {
+    MazeGrid grid = new KruskalGenerator().generate(7, 9, new Random(4));
+    MazeTree tree = new MazeTree(grid, 0);
+    GridSearch search = new GridSearch(grid);
+    boolean same = true;
+    for (int from = 0; from < grid.cells(); from++) {
+      for (int to = 0; to < grid.cells(); to++) {
+        same = same && tree.distance(from, to) == search.breadthFirst(from, to).pathLength() - 1;
+      }
+    }
+    t.checkExpect(same, true);
+    t.checkExpect(tree.depths[0], 0);
+    t.checkExpect(tree.parents[0], 0);
+    t.checkExpect(tree.ends[0], 63);
+    t.checkExpect(tree.lowestCommonAncestor(0, 62), 0);
+    t.checkExpect(tree.lowestCommonAncestor(5, 5), 5);
+    t.checkExpect(tree.isAncestor(0, 40), true);
+    t.checkExpect(tree.isAncestor(40, 0), false);
+
+    MazeGrid split = new MazeGrid(1, 3);
+    split.removeWall(split.eastWall(1));
+    MazeTree apart = new MazeTree(split, 1);
+    t.checkExpect(apart.distance(1, 2), 1);
+    t.checkExpect(apart.distance(0, 2), -1);
+    t.checkExpect(apart.lowestCommonAncestor(2, 0), -1);
+    t.checkExpect(apart.path(0, 2).hasNext(), false);
+  }
+
+  // test the lazy paths of TreePath class
+  void testTreePath(Tester t) {
+    MazeGrid grid = new KruskalGenerator().generate(7, 9, new Random(4));
+    MazeTree tree = new MazeTree(grid, 30);
+    GridSearch search = new GridSearch(grid);
+    boolean same = true;
+    for (int from = 0; from < grid.cells(); from += 5) {
+      for (int to = 0; to < grid.cells(); to += 3) {
+        int[] expected = search.breadthFirst(to, from).path;
+        TreePath path = tree.path(from, to);
+        for (int i = 0; i < expected.length; i++) {
+          same = same && path.hasNext() && path.nextInt() == expected[i];
+        }
+        same = same && !path.hasNext();
+      }
+    }
+    t.checkExpect(same, true);
+    TreePath one = tree.path(8, 8);
+    t.checkExpect(one.nextInt(), 8);
+    t.checkException(new NoSuchElementException("The path has no more cells"), 
+        one, "nextInt");
+  }
+
+  // test the method tree in MazesWorld class
+  void testWorldTree(Tester t) {
+    MazesWorld world = new MazesWorld(30, 20, new BucketOrdering(), new Random(7));
+    MazeTree tree = world.tree();
+    t.checkExpect(world.tree() == tree, true);
+    world.search("b");
+    t.checkExpect(tree.distance(0, 599), world.lastSearch.pathLength() - 1);
+    world.regenerate();
+    t.checkExpect(world.tree() == tree, false);
+  }
+
+  // test the distances, farthest cell and diameter in DistanceField class
+  void testDistanceField(Tester t) {
+    MazeGrid grid = new KruskalGenerator().generate(7, 9, new Random(4));
+    DistanceField field = new DistanceField(grid, 0);
+    MazeTree tree = new MazeTree(grid, 0);
+    boolean same = true;
+    int longest = 0;
+    for (int cell = 0; cell < grid.cells(); cell++) {
+      same = same && field.distance(cell) == tree.distance(0, cell);
+      for (int other = 0; other < grid.cells(); other++) {
+        longest = Math.max(longest, tree.distance(cell, other));
+      }
+    }
+    t.checkExpect(same, true);
+    t.checkExpect(field.maxDistance(), tree.distance(0, field.farthest));
+    t.checkExpect(field.diameter(), longest);
+    t.checkExpect(field.diameter, longest);
+    t.checkExpect(field.pathShare(62), (field.distance(62) + 1) / 63.0);
+
+    MazeGrid split = new MazeGrid(1, 3);
+    split.removeWall(split.eastWall(0));
+    DistanceField apart = new DistanceField(split, 0);
+    t.checkExpect(apart.distances, new int[] {0, 1, -1});
+    t.checkExpect(apart.farthest, 1);
+    t.checkExpect(apart.diameter(), 1);
+  }
+
+  // test the heatmap of the method makeScene in MazesWorld class
+  void testMakeSceneHeatmap(Tester t) {
+    MazesWorld world = new MazesWorld(new KruskalGenerator().generate(10, 10, new Random(4)));
+    world.onKeyEvent("h");
+    WorldScene scene = world.makeScene();
+    t.checkExpect(world.raster.heat == world.distanceField(), true);
+    t.checkExpect(world.raster.colorOf(0), Color.GREEN);
+    int next = world.grid.open(0, MazeGrid.RIGHT) == -1 ? 10 : 1;
+    t.checkExpect(world.raster.colorOf(next), MazeRaster.HEAT[63 / world.distances.maxDistance()]);
+    t.checkExpect(world.raster.colorOf(world.distances.farthest), MazeRaster.HEAT[63]);
+    t.checkExpect(world.raster.image.getPixel(next % 10 * 20 + 5, next / 10 * 20 + 5), 
+        MazeRaster.HEAT[63 / world.distances.maxDistance()]);
+    AllocationMeter meter = new AllocationMeter();
+    meter.perFrame(world, 20);
+    t.checkExpect(meter.perFrame(world, 100) < 1024, true);
+    world.onKeyEvent("b");
+    world.skipToEnd();
+    t.checkExpect(world.raster.colorOf(world.grid.cells() - 1), Color.RED);
+    world.onKeyEvent("n");
+    t.checkExpect(world.distances, null);
+    t.checkExpect(world.makeScene() == scene, false);
+    t.checkExpect(world.raster.heat == world.distances, true);
+    world.onKeyEvent("h");
+    t.checkExpect(world.paintsRaster(), false);
+    t.checkExpect(MazeRaster.HEAT.length, 64);
+  }
+
+  // test the method neighbor in MazeGrid class
+  void testNeighbor(Tester t) {
+    MazeGrid grid = new MazeGrid(2, 3);
+    t.checkExpect(grid.neighbor(0, MazeGrid.UP), -1);
+    t.checkExpect(grid.neighbor(0, MazeGrid.DOWN), 3);
+    t.checkExpect(grid.neighbor(0, MazeGrid.LEFT), -1);
+    t.checkExpect(grid.neighbor(0, MazeGrid.RIGHT), 1);
+    t.checkExpect(grid.neighbor(5, MazeGrid.UP), 2);
+    t.checkExpect(grid.neighbor(5, MazeGrid.DOWN), -1);
+    t.checkExpect(grid.neighbor(5, MazeGrid.LEFT), 4);
+    t.checkExpect(grid.neighbor(5, MazeGrid.RIGHT), -1);
+    t.checkExpect(grid.open(0, MazeGrid.RIGHT), -1);
+  }
+
+  // test that every MazeGenerator makes perfect mazes, the same for the same seed
+  void testMazeGenerators(Tester t) {
+    for (String name : MazeBatch.GENERATORS) {
+      MazeGenerator generator = MazeBatch.generator(name);
+      int[][] sizes = {{1, 1}, {1, 7}, {6, 1}, {13, 17}, {40, 25}};
+      for (int[] size : sizes) {
+        MazeGrid grid = generator.generate(size[0], size[1], new Random(21));
+        t.checkExpect(grid.passages(), grid.cells() - 1);
+        t.checkExpect(new GridSearch(grid).breadthFirst(0, -1).expanded(), grid.cells());
+      }
+      if (!name.equals("boruvka")) {
+        t.checkExpect(generator.generate(30, 20, new Random(5)).walls, 
+            MazeBatch.generate(name, 30, 20, 5L).walls);
+      }
+      t.checkExpect(generator.generate(0, 0, new Random(5)).cells(), 0);
+    }
+    t.checkExpect(MazeBatch.generator("eller").generate(9, 8, new Random(2)).walls, 
+        new EllerGenerator().generate(9, 8, new Random(2)).walls);
+    t.checkExpect(new BacktrackerGenerator().generate(30, 30, new Random(1)).walls 
+        .equals(new BacktrackerGenerator().generate(30, 30, new Random(2)).walls), false);
+  }
+
+  // test the mazes of a MazesWorld with a MazeGenerator
+  void testWorldGenerator(Tester t) {
+    MazesWorld world = new MazesWorld(30, 20, new WilsonGenerator(), new Random(7));
+    t.checkExpect(world.grid.walls, new WilsonGenerator().generate(20, 30, new Random(7)).walls);
+    t.checkExpect(world.minimalPath.size(), 599);
+    t.checkExpect(world.worklist.size(), 1150 - 599);
+    Random rand = new Random(7);
+    new WilsonGenerator().generate(20, 30, rand);
+    MazeGrid next = new WilsonGenerator().generate(20, 30, rand);
+    MazeGrid grid = world.grid;
+    Edge edge = world.cellAt(0).edges.get(0);
+    world.onKeyEvent("b");
+    world.onKeyEvent("n");
+    t.checkExpect(world.grid == grid, true);
+    t.checkExpect(world.grid.walls, next.walls);
+    t.checkExpect(world.cellAt(0).edges.get(0) == edge, true);
+    t.checkExpect(edge.valid, next.connected(0, world.cellIndex(edge.second)));
+    t.checkExpect(world.minimalPath.size(), 599);
+    t.checkExpect(world.worklist.size(), 1150 - 599);
+    t.checkExpect(world.path.size(), 0);
+  }
+
+  // test the methods solve and connected in MazeSnapshot class
+  void testMazeSnapshot(Tester t) {
+    MazesWorld world = new MazesWorld(30, 20, new BucketOrdering(), new Random(7));
+    MazeSnapshot snapshot = world.snapshot();
+    t.checkExpect(snapshot.grid.walls, world.grid.walls);
+    t.checkExpect(snapshot.grid == world.grid, false);
+    t.checkExpect(snapshot.cells(), 600);
+    t.checkExpect(snapshot.solve("a", 0, 599).path, 
+        new GridSearch(world.grid).aStar(0, 599).path);
+    world.regenerate();
+    t.checkExpect(snapshot.grid.walls.equals(world.grid.walls), false);
+    t.checkExpect(snapshot.connected(0, 1), 
+        new KruskalGenerator().generate(20, 30, new Random(7)).connected(0, 1));
+  }
+
+  // test the method solveAll in MazeSnapshot class on many threads at once
+  void testSolveAll(Tester t) {
+    MazeSnapshot snapshot = new MazeSnapshot(
+        new KruskalGenerator().generate(40, 50, new Random(9)));
+    Random rand = new Random(1);
+    int[] froms = new int[300];
+    int[] tos = new int[300];
+    for (int i = 0; i < froms.length; i++) {
+      froms[i] = rand.nextInt(2000);
+      tos[i] = rand.nextInt(2000);
+    }
+    ForkJoinPool pool = new ForkJoinPool(4);
+    int[][] paths = snapshot.solveAll("b", froms, tos, pool);
+    pool.shutdown();
+    boolean same = true;
+    for (int i = 0; i < froms.length; i++) {
+      same = same && Arrays.equals(paths[i], snapshot.solve("b", froms[i], tos[i]).path);
+    }
+    t.checkExpect(same, true);
+    t.checkExpect(snapshot.solveAll("d", new int[0], new int[0], ForkJoinPool.commonPool()), 
+        new int[0][]);
+    t.checkException(new IllegalArgumentException("Got 2 starts but 1 goals"), 
+        snapshot, "solveAll", "b", new int[] {0, 1}, new int[] {5}, 
+        ForkJoinPool.commonPool());
+  }
+
+  // test the method searchParallel in GridSearch class against the serial search
+  void testSearchParallel(Tester t) {
+    MazeGrid maze = new KruskalGenerator().generate(30, 40, new Random(6));
+    MazeGrid open = new MazeGrid(25, 25);
+    Arrays.fill(open.walls, 0L);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    boolean same = true;
+    for (MazeGrid grid : new MazeGrid[] {maze, open}) {
+      GridSearch search = new GridSearch(grid);
+      search.levelGrain = 3;
+      Random rand = new Random(2);
+      for (int i = 0; i < 40; i++) {
+        int from = rand.nextInt(grid.cells());
+        int to = i == 0 ? from : rand.nextInt(grid.cells());
+        SearchResult serial = search.breadthFirst(from, to);
+        SearchResult parallel = search.searchParallel(from, to, pool);
+        same = same && Arrays.equals(serial.path, parallel.path)
+            && Arrays.equals(serial.visited, parallel.visited);
+      }
+      SearchResult all = search.searchParallel(0, -1, pool);
+      same = same && Arrays.equals(all.visited, search.breadthFirst(0, -1).visited);
+    }
+    pool.shutdown();
+    t.checkExpect(same, true);
+
+    SearchResult levels = new GridSearch(open).parallelBreadthFirst(0, 24);
+    t.checkExpect(Arrays.copyOf(levels.levelStarts, 5), new int[] {0, 1, 3, 6, 10});
+    t.checkExpect(levels.levelStarts.length, 25);
+    t.checkExpect(levels.pathLength(), 25);
+    t.checkExpect(levels.frontierPeak, 25);
+    MazeGrid split = new MazeGrid(1, 3);
+    split.removeWall(split.eastWall(0));
+    SearchResult none = new GridSearch(split).parallelBreadthFirst(0, 2);
+    t.checkExpect(none.path, new int[0]);
+    t.checkExpect(none.visited, new int[] {0, 1});
+    t.checkExpect(none.levelStarts, new int[] {0, 1});
+  }
+
+  // test the method onTick in MazesWorld class showing a whole level in every step
+  void testOnTickLevels(Tester t) {
+    MazeGrid open = new MazeGrid(4, 4);
+    Arrays.fill(open.walls, 0L);
+    MazesWorld world = new MazesWorld(open);
+    world.onKeyEvent("p");
+    t.checkExpect(world.lastSearch.levelStarts, new int[] {0, 1, 3, 6, 10, 13, 15});
+    t.checkExpect(world.count, 0);
+    world.onTick();
+    t.checkExpect(world.count, 2);
+    world.onTick();
+    t.checkExpect(world.count, 5);
+    t.checkExpect(world.stepEnd(), 9);
+    world.onKeyEvent("f");
+    world.onTick();
+    t.checkExpect(world.count, 12);
+    world.skipToEnd();
+    t.checkExpect(world.stepEnd(), world.count + 1);
+    world.onKeyEvent("b");
+    t.checkExpect(world.stepEnd(), world.count + 1);
+  }
+
+  // test the constructor of JunctionGraph class contracting the corridors
+  void testJunctionGraph(Tester t) {
+    MazeGrid line = new MazeGrid(1, 5);
+    for (int cell = 0; cell < 4; cell++) {
+      line.removeWall(line.eastWall(cell));
+    }
+    JunctionGraph junctions = new JunctionGraph(line);
+    t.checkExpect(junctions.nodeCells, new int[] {0, 4});
+    t.checkExpect(junctions.interior, new int[] {1, 2, 3});
+    t.checkExpect(junctions.weight(0), 4);
+    t.checkExpect(junctions.corridorOf[2], 0);
+    t.checkExpect(junctions.along[3], 3);
+    t.checkExpect(junctions.heads, new int[] {1, 0});
+    t.checkExpect(junctions.routes, new int[] {0, ~0});
+    t.checkExpect(junctions.acyclic, true);
+
+    MazeGrid ring = new MazeGrid(2, 2);
+    Arrays.fill(ring.walls, 0L);
+    JunctionGraph loop = new JunctionGraph(ring);
+    t.checkExpect(loop.nodeCells, new int[] {0});
+    t.checkExpect(loop.interior, new int[] {2, 3, 1});
+    t.checkExpect(loop.acyclic, false);
+    t.checkExpect(loop.components(), 1);
+  }
+
+  // test the method solve in JunctionGraph class against the breadth-first search
+  void testJunctionSolve(Tester t) {
+    MazeGrid line = new MazeGrid(1, 5);
+    for (int cell = 0; cell < 4; cell++) {
+      line.removeWall(line.eastWall(cell));
+    }
+    JunctionGraph junctions = new JunctionGraph(line);
+    SearchResult ends = junctions.solve(0, 4);
+    t.checkExpect(ends.path, new int[] {4, 3, 2, 1, 0});
+    t.checkExpect(ends.visited, new int[] {0, 4});
+    t.checkExpect(ends.parents, new int[0]);
+    t.checkExpect(junctions.solve(3, 1).path, new int[] {1, 2, 3});
+    t.checkExpect(junctions.solve(2, 2).path, new int[] {2});
+    MazeGrid ring = new MazeGrid(2, 2);
+    Arrays.fill(ring.walls, 0L);
+    t.checkExpect(new JunctionGraph(ring).solve(1, 2).path, new int[] {2, 3, 1});
+    MazeGrid split = new MazeGrid(1, 3);
+    split.removeWall(split.eastWall(0));
+    t.checkExpect(new JunctionGraph(split).solve(0, 2).path, new int[0]);
+
+    // the only path of a perfect maze, or a shortest one with loops
+    MazeGrid maze = new KruskalGenerator().generate(20, 30, new Random(4));
+    MazeGrid loops = new MazeGrid(20, 30);
+    Random rand = new Random(8);
+    for (int wall = 0; wall < 2 * loops.cells(); wall++) {
+      if (rand.nextInt(3) > 0) {
+        loops.removeWall(wall);
+      }
+    }
+    boolean same = true;
+    for (MazeGrid grid : new MazeGrid[] {maze, loops}) {
+      JunctionGraph graph = new JunctionGraph(grid);
+      GridSearch search = new GridSearch(grid);
+      for (int i = 0; i < 60; i++) {
+        int from = rand.nextInt(grid.cells());
+        int to = rand.nextInt(grid.cells());
+        int[] expected = search.breadthFirst(from, to).path;
+        int[] path = graph.solve(from, to).path;
+        same = same && path.length == expected.length 
+            && (grid == loops || Arrays.equals(path, expected));
+        for (int step = 0; step + 1 < path.length; step++) {
+          same = same && grid.connected(path[step], path[step + 1]);
+        }
+      }
+    }
+    t.checkExpect(same, true);
+    t.checkExpect(new JunctionGraph(maze).acyclic, true);
+    t.checkExpect(new JunctionGraph(loops).acyclic, false);
+  }
+
+  // test the "j" key in MazesWorld class and solving a MazeSnapshot on its junctions
+  void testWorldJunctions(Tester t) {
+    MazesWorld world = new MazesWorld(12, 9, new KruskalGenerator(), new Random(5));
+    world.onKeyEvent("b");
+    int[] expected = world.lastSearch.path;
+    world.onKeyEvent("j");
+    t.checkExpect(world.lastSearch.path, expected);
+    t.checkExpect(world.count, 0);
+    t.checkExpect(world.alreadySeen.size(), world.lastSearch.expanded());
+    JunctionGraph junctions = world.junctions();
+    t.checkExpect(world.junctions(), junctions);
+    world.onKeyEvent("n");
+    t.checkExpect(world.junctions, null);
+    MazeSnapshot snapshot = world.snapshot();
+    t.checkExpect(snapshot.solve("j", 3, 100).path, snapshot.solve("b", 3, 100).path);
+  }
+
+  // test the method setWall in PathRepair class repairing the path of the last edit
+  void testPathRepair(Tester t) {
+    MazeGrid line = new MazeGrid(1, 3);
+    line.removeWall(line.eastWall(0));
+    line.removeWall(line.eastWall(1));
+    PathRepair repair = new PathRepair(line, 0, 2);
+    t.checkExpect(repair.path(), new int[] {2, 1, 0});
+    repair.setWall(line.eastWall(1), true);
+    t.checkExpect(repair.connected(), false);
+    t.checkExpect(repair.distance(), -1);
+    t.checkExpect(repair.path(), new int[0]);
+    repair.setWall(line.eastWall(1), false);
+    t.checkExpect(repair.distance(), 2);
+    t.checkExpect(repair.path(), new int[] {2, 1, 0});
+    t.checkException(new IllegalArgumentException("Wall 4 is on the border of the maze"), 
+        repair, "setWall", 4, false);
+    t.checkException(new IllegalArgumentException("Wall 3 is on the border of the maze"), 
+        repair, "setWall", 3, false);
+
+    // an edit the search never got near costs nothing
+    MazeGrid open = new MazeGrid(10, 10);
+    Arrays.fill(open.walls, 0L);
+    PathRepair near = new PathRepair(open, 0, 1);
+    near.path();
+    near.setWall(open.eastWall(88), true);
+    t.checkExpect(near.expanded, 0);
+    t.checkExpect(near.path(), new int[] {1, 0});
+
+    // the same length as a search from scratch after every edit
+    MazeGrid maze = new KruskalGenerator().generate(15, 20, new Random(2));
+    PathRepair repaired = new PathRepair(maze, 7, 250);
+    Random rand = new Random(6);
+    boolean same = true;
+    for (int i = 0; i < 200; i++) {
+      int cell = rand.nextInt(maze.cells() - maze.cols);
+      int wall = rand.nextBoolean() || cell % maze.cols == maze.cols - 1 
+          ? maze.southWall(cell) : maze.eastWall(cell);
+      repaired.setWall(wall, !maze.hasWall(wall));
+      int[] path = repaired.path();
+      same = same && path.length == new GridSearch(maze).breadthFirst(7, 250).pathLength();
+      for (int step = 0; step + 1 < path.length; step++) {
+        same = same && maze.connected(path[step], path[step + 1]);
+      }
+    }
+    t.checkExpect(same, true);
+  }
+
+  // test the methods toggleWall and onMouseClicked in MazesWorld class
+  void testToggleWall(Tester t) {
+    MazeGrid grid = new MazeGrid(2, 2);
+    grid.removeWall(grid.eastWall(0));
+    grid.removeWall(grid.southWall(1));
+    MazesWorld world = new MazesWorld(grid);
+    world.onKeyEvent("b");
+    t.checkExpect(world.path, world.cellsAt(new int[] {3, 1, 0}));
+    world.toggleWall(1, 3);
+    t.checkExpect(world.grid.hasWall(world.grid.southWall(1)), true);
+    t.checkExpect(world.path.size(), 0);
+    t.checkExpect(world.alreadySeen.size(), 0);
+    t.checkExpect(world.count, -1);
+    t.checkExpect(world.cellAt(1).colorSolution, false);
+    world.toggleWall(2, 3);
+    world.toggleWall(0, 2);
+    t.checkExpect(world.path, world.cellsAt(new int[] {3, 2, 0}));
+    t.checkExpect(world.count, 2);
+    t.checkExpect(world.grid.isSolution(2), true);
+    t.checkExpect(world.edgesEdited, true);
+    world.makeScene();
+    t.checkExpect(world.edgesEdited, false);
+    t.checkExpect(world.worklist.size(), 1);
+    t.checkExpect(world.minimalPath.size(), 3);
+    t.checkExpect(world.worklist.get(0).valid, false);
+
+    world.onMouseClicked(new Posn(20, 10));
+    t.checkExpect(world.grid.hasWall(world.grid.eastWall(0)), true);
+    world.onMouseClicked(new Posn(10, 19));
+    t.checkExpect(world.grid.hasWall(world.grid.southWall(0)), true);
+    t.checkExpect(world.path.size(), 0);
+    world.onMouseClicked(new Posn(-5, 10));
+    world.onMouseClicked(new Posn(0, 10));
+    t.checkExpect(world.grid.hasWall(world.grid.southWall(0)), true);
+    world.onKeyEvent("n");
+    t.checkExpect(world.repair, null);
+  }
+
+  // test the constructor and the method update in MazeViewport class
+  void testViewportPyramid(Tester t) {
+    MazeGrid grid = new MazeGrid(4, 4);
+    grid.removeWall(grid.eastWall(0));
+    MazeViewport viewport = new MazeViewport(grid, 40, 40, null);
+    t.checkExpect(viewport.walls.length, 2);
+    t.checkExpect(viewport.walls[0], null);
+    viewport.buildLevels(2);
+    t.checkExpect(viewport.built, 2);
+    t.checkExpect(viewport.walls[0], new int[] {7, 8, 8, 8});
+    t.checkExpect(viewport.walls[1], new int[] {31});
+    t.checkExpect(viewport.solved[1], new int[] {0});
+    viewport.stale = false;
+    grid.markExplored(5);
+    grid.markSolution(5);
+    viewport.update(5);
+    t.checkExpect(viewport.solved[0], new int[] {1, 0, 0, 0});
+    t.checkExpect(viewport.solved[1], new int[] {1});
+    t.checkExpect(viewport.stale, true);
+    viewport.stale = false;
+    viewport.update(15);
+    t.checkExpect(viewport.stale, false);
+    MazeViewport tall = new MazeViewport(new MazeGrid(5, 3), 10, 10, null);
+    tall.buildLevels(3);
+    t.checkExpect(tall.walls[2].length, 1);
+  }
+
+  // test the methods pan, zoomIn, zoomOut and toMaze in MazeViewport class
+  void testViewportMoves(Tester t) {
+    MazeViewport viewport = new MazeViewport(new MazeGrid(4, 4), 40, 40, null);
+    t.checkExpect(viewport.visibleCols(), 2);
+    viewport.pan(1, 0);
+    t.checkExpect(viewport.left, 1);
+    viewport.pan(5, 5);
+    t.checkExpect(viewport.left, 2);
+    t.checkExpect(viewport.top, 2);
+    t.checkExpect(viewport.toMaze(new Posn(30, 10)), new Posn(70, 50));
+    viewport.zoomOut();
+    t.checkExpect(viewport.cellSize, 10);
+    t.checkExpect(viewport.left, 0);
+    t.checkExpect(viewport.toMaze(new Posn(30, 10)), new Posn(60, 20));
+    viewport.zoomOut();
+    viewport.zoomOut();
+    viewport.zoomOut();
+    t.checkExpect(viewport.cellSize, 1);
+    t.checkExpect(viewport.visibleCols(), 4);
+    t.checkExpect(viewport.toMaze(new Posn(30, 10)), null);
+    viewport.zoomOut();
+    viewport.zoomOut();
+    viewport.zoomOut();
+    t.checkExpect(viewport.level, 2);
+    t.checkExpect(viewport.visibleCols(), 4);
+    viewport.zoomIn();
+    t.checkExpect(viewport.level, 1);
+    viewport.zoomIn();
+    viewport.zoomIn();
+    t.checkExpect(viewport.level, 0);
+    t.checkExpect(viewport.cellSize, 2);
+
+    MazeViewport deep = new MazeViewport(new MazeGrid(2, 3), 40, 40, null);
+    deep.cellSize = 1;
+    deep.level = 26;
+    t.checkExpect(deep.visibleCols(), 3);
+    t.checkExpect(deep.visibleRows(), 2);
+  }
+
+  // test the method render in MazeViewport class painting only the screen
+  void testViewportRender(Tester t) {
+    MazeGrid grid = new MazeGrid(4, 4);
+    grid.removeWall(grid.eastWall(0));
+    MazeViewport viewport = new MazeViewport(grid, 100, 60, null);
+    viewport.render();
+    t.checkExpect(viewport.stale, false);
+    t.checkExpect(viewport.image.getPixel(5, 5), Color.GREEN);
+    t.checkExpect(viewport.image.getPixel(19, 5), Color.GREEN);
+    t.checkExpect(viewport.image.getPixel(39, 5), Color.DARK_GRAY);
+    t.checkExpect(viewport.image.getPixel(25, 19), Color.DARK_GRAY);
+    t.checkExpect(viewport.image.getPixel(90, 10), MazeViewport.OUTSIDE);
+    t.checkExpect(viewport.image.getPixel(25, 45), Color.GRAY);
+    viewport.cellSize = 1;
+    viewport.level = 1;
+    viewport.clamp();
+    viewport.render();
+    t.checkExpect(viewport.image.getPixel(0, 0), Color.GREEN);
+    t.checkExpect(viewport.image.getPixel(1, 1), Color.RED);
+    t.checkExpect(viewport.image.getPixel(1, 0), MazeViewport.SHADES[15]);
+    t.checkExpect(viewport.image.getPixel(2, 0), MazeViewport.OUTSIDE);
+    grid.markExplored(6);
+    grid.markSolution(6);
+    viewport.update(6);
+    viewport.render();
+    t.checkExpect(viewport.image.getPixel(1, 0), Color.RED);
+  }
+
+  // test the viewport mode of MazesWorld class
+  void testWorldViewport(Tester t) {
+    MazesWorld world = new MazesWorld(60, 30, new KruskalGenerator(), new Random(3));
+    t.checkExpect(world.screenWidth(), 800);
+    t.checkExpect(world.screenHeight(), 600);
+    t.checkExpect(world.viewportMode, true);
+    world.onKeyEvent("right");
+    t.checkExpect(world.viewport, null);
+    world.makeScene();
+    t.checkExpect(world.viewport.width, 800);
+    t.checkExpect(world.viewport.stale, false);
+    world.onMouseClicked(new Posn(20, 10));
+    t.checkExpect(world.grid.hasWall(world.grid.eastWall(0)), 
+        !world.cellAt(0).edges.get(1).valid);
+    world.onKeyEvent("right");
+    t.checkExpect(world.viewport.left, 10);
+    world.onKeyEvent("-");
+    t.checkExpect(world.viewport.cellSize, 10);
+    world.onKeyEvent("=");
+    t.checkExpect(world.viewport.cellSize, 20);
+    world.onKeyEvent("b");
+    world.onTick();
+    world.makeScene();
+    t.checkExpect(world.dirty.isEmpty(), true);
+    world.viewport.buildLevels(1);
+    t.checkExpect(world.viewport.solved[0][0] > 0, true);
+    MazeViewport old = world.viewport;
+    world.onKeyEvent("n");
+    world.makeScene();
+    t.checkExpect(world.viewport == old, false);
+    t.checkExpect(world.viewport.left, old.left);
+    world.onKeyEvent("v");
+    t.checkExpect(world.makeScene() == world.scene, true);
+    t.checkExpect(world.viewportMode, false);
+    t.checkExpect(new MazesWorld(40, 40, new BucketOrdering(), new Random(3)).viewportMode, 
+        false);
+    t.checkExpect(new MazesWorld(10, 41, new BucketOrdering(), new Random(3)).viewportMode, 
+        true);
+    t.checkExpect(new MazesWorld(41, 10, 3).viewportMode, true);
+    t.checkExpect(new MazesWorld(new MazeGrid(10, 41)).viewportMode, true);
+  }
+
+  // test that the viewport shows the end of a search and a new maze in raster mode too
+  void testWorldViewportRaster(Tester t) {
+    MazesWorld world = new MazesWorld(new KruskalGenerator().generate(20, 20, new Random(4)));
+    world.onKeyEvent("r");
+    world.makeScene();
+    world.onKeyEvent("v");
+    world.makeScene();
+    MazeViewport shown = world.viewport;
+    t.checkExpect(this.countPixels(shown, Color.RED), 400);
+    world.onKeyEvent("b");
+    world.onKeyEvent("e");
+    world.makeScene();
+    t.checkExpect(world.viewport.left, shown.left);
+    boolean shownRed = true;
+    // every cell of the path but the green start
+    for (Cell cell : world.path.subList(0, world.path.size() - 1)) {
+      shownRed = shownRed 
+          && world.viewport.image.getPixel(cell.col * 20 + 10, cell.row * 20 + 10)
+          .equals(Color.RED);
+    }
+    t.checkExpect(world.path.size() > 1, true);
+    t.checkExpect(shownRed, true);
+    int[] before = new int[400];
+    for (int cell = 0; cell < 400; cell++) {
+      before[cell] = world.viewport.image.getPixel(cell % 20 * 20 + 19, cell / 20 * 20 + 10)
+          .getRGB();
+    }
+    world.onKeyEvent("n");
+    world.makeScene();
+    int changed = 0;
+    for (int cell = 0; cell < 400; cell++) {
+      if (world.viewport.image.getPixel(cell % 20 * 20 + 19, cell / 20 * 20 + 10).getRGB() 
+          != before[cell]) {
+        changed++;
+      }
+    }
+    t.checkExpect(changed > 0, true);
+    t.checkExpect(this.countPixels(world.viewport, Color.RED), 400);
+  }
+
+  // to count the pixels of the given color in the image of the given viewport
+  int countPixels(MazeViewport viewport, Color color) {
+    int count = 0;
+    for (int x = 0; x < viewport.width; x++) {
+      for (int y = 0; y < viewport.height; y++) {
+        if (viewport.image.getPixel(x, y).equals(color)) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  // test the methods edgeCount, edgeFirst and edgeSecond in MazesWorld class
+  void testEdgeNumbers(Tester t) {
+    MazesWorld world = new MazesWorld(6, 5, 1);
+    t.checkExpect(world.edgeCount(), 49);
+    t.checkExpect(world.edgeFirst(0), world.cellAt(0));
+    t.checkExpect(world.edgeSecond(0), world.cellAt(6));
+    t.checkExpect(world.edgeFirst(23), world.cellAt(23));
+    t.checkExpect(world.edgeFirst(24), world.cellAt(0));
+    t.checkExpect(world.edgeSecond(24), world.cellAt(1));
+    t.checkExpect(world.edgeFirst(29), world.cellAt(6));
+    t.checkExpect(world.edgeSecond(48), world.cellAt(29));
+  }
+
+  // test the method buildSlice in MazesWorld class going through every stage a tick
+  // at a time
+  void testProgressiveBuild(Tester t) {
+    MazesWorld world = new MazesWorld(6, 5, new Random(4), 1);
+    t.checkExpect(world.build.stage, MazeBuild.BOARD);
+    t.checkExpect(world.viewportMode, false);
+    t.checkExpect(world.makeScene() == null, false);
+    world.onKeyEvent("b");
+    t.checkExpect(world.count, -1);
+    world.onTick();
+    t.checkExpect(world.board.size(), 5);
+    t.checkExpect(world.build.stage, MazeBuild.EDGES);
+    world.onTick();
+    t.checkExpect(world.worklist.size(), 49);
+    t.checkExpect(world.build.stage, MazeBuild.SORT);
+    world.onTick();
+    t.checkExpect(world.build.stage, MazeBuild.CARVE);
+    world.onTick();
+    t.checkExpect(world.minimalPath.size(), 29);
+    t.checkExpect(world.grid.passages(), 29);
+    t.checkExpect(world.dirty.isEmpty(), false);
+    t.checkExpect(world.build.stage, MazeBuild.WALLS);
+    world.makeScene();
+    t.checkExpect(world.viewport.stale, false);
+    world.onTick();
+    t.checkExpect(world.build, null);
+    t.checkExpect(world.scene, null);
+    t.checkExpect(world.worklist.size(), 20);
+    MazesWorld whole = new MazesWorld(6, 5, new BucketOrdering(), new Random(4));
+    t.checkExpect(world.grid.walls, whole.grid.walls);
+
+    MazesWorld big = new MazesWorld(40, 40, new Random(4), 1);
+    big.onTick();
+    t.checkExpect(big.board.size(), 26);
+    t.checkExpect(big.build.stage, MazeBuild.BOARD);
+    t.checkExpect(new MazesWorld(60, 10, new Random(4), 1).viewportMode, true);
+  }
+
+  // test the methods startStage and elapsed in MazeBuild class
+  void testMazeBuildTime(Tester t) {
+    MazeBuild build = new MazeBuild(MazeBuild.EDGES);
+    build.stageNanos = 5000;
+    build.sliceStart = System.nanoTime() - 1000000;
+    t.checkExpect(build.elapsed() >= 1005000, true);
+    long before = System.nanoTime();
+    build.startStage(MazeBuild.SORT);
+    t.checkExpect(build.stageNanos, 0L);
+    t.checkExpect(build.sliceStart >= before, true);
+
+    // the last slice of a stage counts for that stage in the metrics
+    MazesWorld world = new MazesWorld(6, 5, new Random(4), 1);
+    world.metrics = new MazeMetrics();
+    while (world.build != null) {
+      world.onTick();
+    }
+    t.checkExpect(world.metrics.edgesCreated, 49L);
+    t.checkExpect(world.metrics.createEdgesNanos > 0, true);
+    t.checkExpect(world.metrics.findMinimalPathNanos > 0, true);
+  }
+
+  // test the "n" key in a MazesWorld generated a slice at a time
+  void testProgressiveRegenerate(Tester t) {
+    MazesWorld world = new MazesWorld(6, 5, new Random(4), 1000000000L);
+    world.onTick();
+    t.checkExpect(world.build, null);
+    world.onKeyEvent("b");
+    world.onTick();
+    world.onKeyEvent("n");
+    t.checkExpect(world.build.stage, MazeBuild.CLEAR);
+    t.checkExpect(world.count, -1);
+    t.checkExpect(world.worklist.size(), 0);
+    t.checkExpect(world.grid.passages(), 0);
+    world.onTick();
+    t.checkExpect(world.build, null);
+    t.checkExpect(world.cellAt(0).colorExploration, false);
+    MazesWorld whole = new MazesWorld(6, 5, new BucketOrdering(), new Random(4));
+    whole.regenerate();
+    t.checkExpect(world.grid.walls, whole.grid.walls);
+    t.checkExpect(world.minimalPath.size(), 29);
+  }
+
+  // test the options of MazeBenchmark class, read by the method options in MazeBatch class
+  void testMazeBenchmarkOptions(Tester t) {
+    HashMap<String, String> options = new HashMap<String, String>();
+    options.put("sizes", "10,100");
+    options.put("warmup", "1");
+    t.checkExpect(MazeBatch.options(new String[] {"--sizes", "10,100", "--warmup", "1"}, 
+        MazeBenchmark.OPTIONS), options);
+    t.checkException(new IllegalArgumentException("Expected an option instead of sizes"), 
+        new MazeBatch(2, 2, 0, 0, "kruskal", "b", 1), "options", 
+        new String[] {"sizes", "10"}, MazeBenchmark.OPTIONS);
+    t.checkException(new IllegalArgumentException("Unknown option: --seed"), 
+        new MazeBatch(2, 2, 0, 0, "kruskal", "b", 1), "options", 
+        new String[] {"--sizes", "10", "--seed", "3"}, MazeBenchmark.OPTIONS);
+    t.checkException(new IllegalArgumentException("Unknown option: --rows"), 
+        new MazeBatch(2, 2, 0, 0, "kruskal", "b", 1), "options", 
+        new String[] {"--rows", "10"}, MazeBenchmark.OPTIONS);
+    t.checkException(new IllegalArgumentException("Missing a value for --phases"), 
+        new MazeBatch(2, 2, 0, 0, "kruskal", "b", 1), "options", 
+        new String[] {"--sizes", "10", "--phases"}, MazeBenchmark.OPTIONS);
+  }
+
+  // test the methods prepare and runPhase in MazeBenchmark class
+  void testBenchmarkPrepare(Tester t) {
+    MazeBenchmark benchmark = new MazeBenchmark(0, 1);
+    MazesWorld edges = benchmark.prepare("createEdges", 4, 1);
+    t.checkExpect(edges.worklist.size(), 0);
+    t.checkExpect(edges.representatives.parents.length, 16);
+    MazesWorld sorted = benchmark.prepare("findMinimalPath", 4, 1);
+    UnionFind sets = sorted.representatives;
+    benchmark.runPhase("findMinimalPath", sorted);
+    t.checkExpect(sorted.representatives == sets, true);
+    t.checkExpect(sorted.minimalPath.size(), 15);
+    MazesWorld walls = benchmark.prepare("containOnlyWalls", 4, 1);
+    t.checkExpect(walls.minimalPath.size(), 15);
+    t.checkExpect(walls.worklist.size(), 24);
+    benchmark.runPhase("containOnlyWalls", walls);
+    t.checkExpect(walls.worklist.size(), 9);
+    MazesWorld scene = benchmark.prepare("makeScene", 4, 1);
+    t.checkExpect(scene.path.size(), 7);
+    t.checkExpect(scene.scene, null);
+    benchmark.runPhase("makeScene", scene);
+    t.checkExpect(scene.scene == null, false);
+    t.checkException(new IllegalArgumentException("Unknown phase: render"), 
+        benchmark, "prepare", "render", 4, 1);
+  }
+
+  // test the method measure in MazeBenchmark class
+  void testBenchmarkMeasure(Tester t) {
+    MazeBenchmark benchmark = new MazeBenchmark(1, 3);
+    for (String phase : MazeBenchmark.PHASES) {
+      double[] result = benchmark.measure(phase, 20, 2);
+      t.checkExpect(result.length, 2);
+      t.checkExpect(result[0] > 0, true);
+    }
+    t.checkExpect(benchmark.measure("createEdges", 20, 2)[1] > 0, true);
+  }
+
   // to start the game and render the world
   void testMazes(Tester t) {
     MazesWorld world = new MazesWorld(10, 10);
-    world.bigBang(world.col * 20, world.row * 20, 0.1);
+    world.bigBang(world.screenWidth(), world.screenHeight(), 0.1);
   }
 }